@@ -0,0 +1,56 @@
+package com.project.crypto;
+
+import com.project.crypto.ciphers.Algorithm;
+import com.project.crypto.ciphers.MARS;
+import com.project.crypto.ciphers.MARSUnrolled;
+import org.openjdk.jmh.annotations.*;
+
+import java.security.SecureRandom;
+import java.util.concurrent.TimeUnit;
+
+// Пакетные encryptBlocks/decryptBlocks движков MARS: четырёхполосный цикл MARS
+// против развёрнутых раундов MARSUnrolled. 256 блоков - пачка CTR, 4096 - кусок ECB
+// в ParallelBlocks. Результат - время на пачку.
+// Запуск: ./gradlew jmh -Pjmh.includes=MarsBatchBenchmark
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+public class MarsBatchBenchmark {
+
+    @Param({"reference", "unrolled"})
+    public String engine;
+
+    @Param({"256", "4096"})
+    public int blocks;
+
+    private Algorithm alg;
+    private byte[] in;
+    private byte[] out;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SecureRandom rnd = new SecureRandom();
+        byte[] key = new byte[16];
+        rnd.nextBytes(key);
+        alg = engine.equals("unrolled") ? new MARSUnrolled() : new MARS();
+        alg.setKey(key);
+        in = new byte[16 * blocks];
+        rnd.nextBytes(in);
+        out = new byte[in.length];
+    }
+
+    @Benchmark
+    public byte[] encryptBlocks() {
+        alg.encryptBlocks(in, 0, out, 0, blocks);
+        return out;
+    }
+
+    @Benchmark
+    public byte[] decryptBlocks() {
+        alg.decryptBlocks(in, 0, out, 0, blocks);
+        return out;
+    }
+}
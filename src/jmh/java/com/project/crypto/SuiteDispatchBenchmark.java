@@ -0,0 +1,82 @@
+package com.project.crypto;
+
+import com.project.crypto.factories.*;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Шифрование короткого сообщения одним и тем же набором (MARS/CBC/PKCS7 или MAGENTA/CTR/PKCS7),
+// когда в JVM работает только он (pollute=false) и когда перед замером прогнаны все
+// 2x7x4 комбинации (pollute=true), то есть профили вызовов в режимах и паддингах
+// уже видели все реализации.
+// Запуск: ./gradlew jmh
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 2, jvmArgsAppend = "-XX:-BackgroundCompilation")
+public class SuiteDispatchBenchmark {
+
+    @Param({"false", "true"})
+    public boolean pollute;
+
+    @Param({"64", "4096"})
+    public int size;
+
+    private CryptoSuite mars;
+    private CryptoSuite magenta;
+    private byte[] message;
+    private byte[] iv;
+    private byte[] marsCiphertext;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SecureRandom rnd = new SecureRandom();
+        byte[] key = new byte[16];
+        rnd.nextBytes(key);
+        message = new byte[size];
+        rnd.nextBytes(message);
+        iv = new byte[16];
+        rnd.nextBytes(iv);
+
+        mars = suite(AlgorithmType.MARS, ModeType.CBC, PaddingType.PKCS7, key);
+        magenta = suite(AlgorithmType.MAGENTA, ModeType.CTR, PaddingType.PKCS7, key);
+        marsCiphertext = mars.encrypt(message, iv);
+
+        if (pollute) {
+            List<CryptoSuite> all = new ArrayList<>();
+            for (AlgorithmType a : AlgorithmType.values())
+                for (ModeType m : ModeType.values())
+                    for (PaddingType p : PaddingType.values())
+                        all.add(suite(a, m, p, key));
+            // достаточно, чтобы все горячие места дошли до C2 с полным профилем
+            for (int round = 0; round < 2_000; round++)
+                for (CryptoSuite s : all)
+                    s.decrypt(s.encrypt(message, iv), iv);
+        }
+    }
+
+    private static CryptoSuite suite(AlgorithmType a, ModeType m, PaddingType p, byte[] key) {
+        return new CryptoFactory.Builder().algorithm(a).mode(m).padding(p).key(key).buildSuite();
+    }
+
+    @Benchmark
+    public byte[] marsCbcEncrypt() {
+        return mars.encrypt(message, iv);
+    }
+
+    @Benchmark
+    public byte[] marsCbcDecrypt() {
+        return mars.decrypt(marsCiphertext, iv);
+    }
+
+    @Benchmark
+    public void magentaCtrRoundTrip(Blackhole bh) {
+        bh.consume(magenta.decrypt(magenta.encrypt(message, iv), iv));
+    }
+}
@@ -0,0 +1,36 @@
+package com.project.config;
+
+import com.project.crypto.factories.EngineRegistry;
+import com.project.crypto.keyx.DhParamsPool;
+import com.project.crypto.factories.SuiteCache;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+public class CryptoConfig {
+
+    @Bean
+    public SuiteCache suiteCache(@Value("${crypto.suite-cache.max-size:512}") int maxSize,
+                                 @Value("${crypto.suite-cache.ttl:PT30M}") Duration ttl) {
+        return new SuiteCache(maxSize, ttl);
+    }
+
+    // тот же экземпляр, что использует CryptoFactory
+    @Bean
+    public EngineRegistry engineRegistry(@Value("${crypto.engines.calibrate:true}") boolean calibrate) {
+        EngineRegistry registry = EngineRegistry.getDefault();
+        if (calibrate) registry.calibrate();
+        return registry;
+    }
+
+    @Bean(destroyMethod = "close")
+    public DhParamsPool dhParamsPool(@Value("${crypto.dh.bit-length:512}") int bitLength,
+                                     @Value("${crypto.dh.certainty:40}") int certainty,
+                                     @Value("${crypto.dh.pool-depth:8}") int depth,
+                                     @Value("${crypto.dh.refill-threads:1}") int threads) {
+        return new DhParamsPool(bitLength, certainty, depth, threads);
+    }
+}
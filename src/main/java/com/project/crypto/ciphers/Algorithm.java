@@ -1,10 +1,43 @@
 package com.project.crypto.ciphers;
 
+// Потокобезопасность: setKey вызывается один раз до того, как экземпляр станет виден
+// другим потокам (CryptoFactory так и делает); после этого encrypt/decrypt только читают
+// ключевое расписание и могут идти из любого числа потоков без синхронизации.
+// Вся временная память - локальная для вызова.
 public interface Algorithm {
     int getBlockSize();
 
+    // не потокобезопасен; ключ копируется, массив key можно менять после вызова.
+    // Ключ задаётся один раз: повторный вызов - IllegalStateException, для нового ключа
+    // нужен новый экземпляр
     void setKey(byte[] key);
 
-    byte[] encryptBlock(byte[] block);
-    byte[] decryptBlock(byte[] block);
-}
\ No newline at end of file
+    // in и out могут совпадать (шифрование на месте)
+    void encryptBlock(byte[] in, int inOff, byte[] out, int outOff);
+    void decryptBlock(byte[] in, int inOff, byte[] out, int outOff);
+
+    // blocks подряд идущих независимых блоков; реализации могут обрабатывать их вперемешку
+    default void encryptBlocks(byte[] in, int inOff, byte[] out, int outOff, int blocks) {
+        int bs = getBlockSize();
+        for (int i = 0; i < blocks; i++)
+            encryptBlock(in, inOff + i * bs, out, outOff + i * bs);
+    }
+
+    default void decryptBlocks(byte[] in, int inOff, byte[] out, int outOff, int blocks) {
+        int bs = getBlockSize();
+        for (int i = 0; i < blocks; i++)
+            decryptBlock(in, inOff + i * bs, out, outOff + i * bs);
+    }
+
+    default byte[] encryptBlock(byte[] block) {
+        byte[] out = new byte[getBlockSize()];
+        encryptBlock(block, 0, out, 0);
+        return out;
+    }
+
+    default byte[] decryptBlock(byte[] block) {
+        byte[] out = new byte[getBlockSize()];
+        decryptBlock(block, 0, out, 0);
+        return out;
+    }
+}
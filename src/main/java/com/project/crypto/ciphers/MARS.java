@@ -65,14 +65,14 @@ public class MARS implements Algorithm {
     private static int S1(int x){ return S[256 + (x & 0xff)]; }
     private static int S9(int x){ return S[x & 0x1ff]; }
 
-    private final int[] K = new int[40];
-    // TODO может убрать?
+    final int[] K = new int[40];
     private boolean keySet = false;
 
     @Override public int getBlockSize(){ return BLOCK_SIZE; }
 
     @Override
     public void setKey(byte[] key){
+        if (keySet) throw new IllegalStateException("Key already set");
         int n = key.length / 4;
 
         int[] T = new int[15];
@@ -110,12 +110,12 @@ public class MARS implements Algorithm {
     }
 
     @Override
-    public byte[] encryptBlock(byte[] block){
+    public void encryptBlock(byte[] in, int inOff, byte[] out, int outOff){
 
-        int A = leToInt(block, 0);
-        int Bv = leToInt(block, 4);
-        int Cv = leToInt(block, 8);
-        int D = leToInt(block, 12);
+        int A = leToInt(in, inOff);
+        int Bv = leToInt(in, inOff + 4);
+        int Cv = leToInt(in, inOff + 8);
+        int D = leToInt(in, inOff + 12);
 
         A += K[0];
         Bv += K[1];
@@ -187,21 +187,18 @@ public class MARS implements Algorithm {
         Cv = sub32(Cv, K[38]);
         D = sub32(D, K[39]);
 
-        byte[] out = new byte[16];
-        intToLe(A, out, 0);
-        intToLe(Bv, out, 4);
-        intToLe(Cv, out, 8);
-        intToLe(D, out, 12);
-
-        return out;
+        intToLe(A, out, outOff);
+        intToLe(Bv, out, outOff + 4);
+        intToLe(Cv, out, outOff + 8);
+        intToLe(D, out, outOff + 12);
     }
 
     @Override
-    public byte[] decryptBlock(byte[] block){
-        int A = leToInt(block, 0);
-        int Bv = leToInt(block, 4);
-        int Cv = leToInt(block, 8);
-        int D = leToInt(block, 12);
+    public void decryptBlock(byte[] in, int inOff, byte[] out, int outOff){
+        int A = leToInt(in, inOff);
+        int Bv = leToInt(in, inOff + 4);
+        int Cv = leToInt(in, inOff + 8);
+        int D = leToInt(in, inOff + 12);
 
         A = add32(A, K[36]);
         Bv = add32(Bv, K[37]);
@@ -270,13 +267,172 @@ public class MARS implements Algorithm {
         Cv = sub32(Cv, K[2]);
         D = sub32(D, K[3]);
 
-        byte[] out = new byte[16];
-        intToLe(A, out, 0);
-        intToLe(Bv, out, 4);
-        intToLe(Cv, out, 8);
-        intToLe(D, out, 12);
+        intToLe(A, out, outOff);
+        intToLe(Bv, out, outOff + 4);
+        intToLe(Cv, out, outOff + 8);
+        intToLe(D, out, outOff + 12);
+    }
+
+    // Пакетная обработка: LANES независимых блоков идут через раунды вместе,
+    // чтобы цепочки зависимостей по S-box разных блоков перекрывались.
+    private static final int LANES = 4;
+
+    @Override
+    public void encryptBlocks(byte[] in, int inOff, byte[] out, int outOff, int blocks){
+        int[] A = new int[LANES], Bv = new int[LANES], Cv = new int[LANES], D = new int[LANES];
+
+        int n = 0;
+        for (; n + LANES <= blocks; n += LANES){
+            for (int l = 0; l < LANES; l++){
+                int o = inOff + 16 * (n + l);
+                A[l]  = leToInt(in, o) + K[0];
+                Bv[l] = leToInt(in, o + 4) + K[1];
+                Cv[l] = leToInt(in, o + 8) + K[2];
+                D[l]  = leToInt(in, o + 12) + K[3];
+            }
+
+            for (int i = 0; i < 8; i++){
+                for (int l = 0; l < LANES; l++){
+                    int a0 = A[l];
+                    Bv[l] = (Bv[l] ^ S0(a0)) + S1(a0 >>> 8);
+                    Cv[l] += S0(a0 >>> 16);
+                    D[l] ^= S1(a0 >>> 24);
+                    int a = rotr(a0, 24);
+                    if (i == 1 || i == 5)
+                        a += Bv[l];
+                    else if (i == 0 || i == 4)
+                        a += D[l];
+                    A[l] = a;
+                }
+                int[] t = A; A = Bv; Bv = Cv; Cv = D; D = t;
+            }
+
+            for (int i = 0; i < 16; i++){
+                int k4 = K[2*i + 4], k5 = K[2*i + 5];
+                for (int l = 0; l < LANES; l++){
+                    int a = A[l];
+                    int R = rotl(rotl(a, 13) * k5, 10);
+                    int M = rotl(a + k4, (R >>> 5) & 31);
+                    int L = rotl(S9(M) ^ (R >>> 5) ^ R, R & 31);
+                    if (i < 8) {
+                        Bv[l] += L;
+                        D[l] ^= R;
+                    }
+                    else {
+                        Bv[l] ^= R;
+                        D[l] += L;
+                    }
+                    Cv[l] += M;
+                    A[l] = rotl(a, 13);
+                }
+                int[] t = A; A = Bv; Bv = Cv; Cv = D; D = t;
+            }
+
+            for (int i = 0; i < 8; i++){
+                for (int l = 0; l < LANES; l++){
+                    int a = A[l];
+                    if (i == 3 || i == 7)
+                        a -= Bv[l];
+                    else if (i == 2 || i == 6)
+                        a -= D[l];
+                    Bv[l] ^= S1(a);
+                    Cv[l] -= S0(rotl(a, 8));
+                    D[l] = (D[l] - S1(rotl(a, 16))) ^ S0(rotl(a, 24));
+                    A[l] = rotl(a, 24);
+                }
+                int[] t = A; A = Bv; Bv = Cv; Cv = D; D = t;
+            }
+
+            for (int l = 0; l < LANES; l++){
+                int o = outOff + 16 * (n + l);
+                intToLe(A[l] - K[36], out, o);
+                intToLe(Bv[l] - K[37], out, o + 4);
+                intToLe(Cv[l] - K[38], out, o + 8);
+                intToLe(D[l] - K[39], out, o + 12);
+            }
+        }
+
+        for (; n < blocks; n++)
+            encryptBlock(in, inOff + 16 * n, out, outOff + 16 * n);
+    }
+
+    @Override
+    public void decryptBlocks(byte[] in, int inOff, byte[] out, int outOff, int blocks){
+        int[] A = new int[LANES], Bv = new int[LANES], Cv = new int[LANES], D = new int[LANES];
+
+        int n = 0;
+        for (; n + LANES <= blocks; n += LANES){
+            for (int l = 0; l < LANES; l++){
+                int o = inOff + 16 * (n + l);
+                A[l]  = leToInt(in, o) + K[36];
+                Bv[l] = leToInt(in, o + 4) + K[37];
+                Cv[l] = leToInt(in, o + 8) + K[38];
+                D[l]  = leToInt(in, o + 12) + K[39];
+            }
+
+            for (int i = 7; i >= 0; i--){
+                int[] t = D; D = Cv; Cv = Bv; Bv = A; A = t;
+                for (int l = 0; l < LANES; l++){
+                    int a = rotr(A[l], 24);
+                    D[l] = (D[l] ^ S0(rotl(a, 24))) + S1(rotl(a, 16));
+                    Cv[l] += S0(rotl(a, 8));
+                    Bv[l] ^= S1(a);
+                    if (i == 3 || i == 7)
+                        a += Bv[l];
+                    else if (i == 2 || i == 6)
+                        a += D[l];
+                    A[l] = a;
+                }
+            }
+
+            for (int i = 15; i >= 0; i--){
+                int[] t = D; D = Cv; Cv = Bv; Bv = A; A = t;
+                int k4 = K[2*i + 4], k5 = K[2*i + 5];
+                for (int l = 0; l < LANES; l++){
+                    int a = rotr(A[l], 13);
+                    int R = rotl(rotl(a, 13) * k5, 10);
+                    int M = rotl(a + k4, (R >>> 5) & 31);
+                    int L = rotl(S9(M) ^ (R >>> 5) ^ R, R & 31);
+                    Cv[l] -= M;
+                    if (i < 8) {
+                        Bv[l] -= L;
+                        D[l] ^= R;
+                    }
+                    else {
+                        Bv[l] ^= R;
+                        D[l] -= L;
+                    }
+                    A[l] = a;
+                }
+            }
+
+            for (int i = 7; i >= 0; i--){
+                int[] t = D; D = Cv; Cv = Bv; Bv = A; A = t;
+                for (int l = 0; l < LANES; l++){
+                    int a = A[l];
+                    if (i == 1 || i == 5)
+                        a -= Bv[l];
+                    else if (i == 0 || i == 4)
+                        a -= D[l];
+                    a = rotl(a, 24);
+                    D[l] ^= S1(rotr(a, 24));
+                    Cv[l] -= S0(rotr(a, 16));
+                    Bv[l] = (Bv[l] - S1(rotr(a, 8))) ^ S0(a);
+                    A[l] = a;
+                }
+            }
+
+            for (int l = 0; l < LANES; l++){
+                int o = outOff + 16 * (n + l);
+                intToLe(A[l] - K[0], out, o);
+                intToLe(Bv[l] - K[1], out, o + 4);
+                intToLe(Cv[l] - K[2], out, o + 8);
+                intToLe(D[l] - K[3], out, o + 12);
+            }
+        }
 
-        return out;
+        for (; n < blocks; n++)
+            decryptBlock(in, inOff + 16 * n, out, outOff + 16 * n);
     }
 
     private static int rotl(int x, int n){ return (x << n) | (x >>> (32 - n)); }
@@ -286,13 +442,13 @@ public class MARS implements Algorithm {
     private static int sub32(int a, int b){ return a - b; }
     private static int mul32(int a, int b){ return a * b; }
 
-    private static int leToInt(byte[] b, int off){
+    static int leToInt(byte[] b, int off){
         return  (b[off] & 0xff) |
                 ((b[off+1] & 0xff) << 8) |
                 ((b[off+2] & 0xff) << 16) |
                 ((b[off+3] & 0xff) << 24);
     }
-    private static void intToLe(int v, byte[] out, int off){
+    static void intToLe(int v, byte[] out, int off){
         out[off] = (byte)(v & 0xff);
         out[off+1] = (byte)((v >>> 8) & 0xff);
         out[off+2] = (byte)((v >>>16) & 0xff);
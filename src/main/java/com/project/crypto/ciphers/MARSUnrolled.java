@@ -0,0 +1,1088 @@
+package com.project.crypto.ciphers;
+
+// MARS с полностью развёрнутыми раундами: без ветвлений по номеру раунда и без
+// перестановок A/B/C/D (роли переменных сдвигаются при развёртке), подключи лежат
+// в отдельных полях, а не в массиве. Шифротекст совпадает с MARS.
+// Пакетные encryptBlocks/decryptBlocks ведут по два блока через одни развёрнутые
+// раунды, а не через четырёхполосный цикл MARS с массивами и ветвлениями по номеру раунда.
+public final class MARSUnrolled extends MARS {
+
+    private int k0, k1, k2, k3, k4, k5, k6, k7, k8, k9;
+    private int k10, k11, k12, k13, k14, k15, k16, k17, k18, k19;
+    private int k20, k21, k22, k23, k24, k25, k26, k27, k28, k29;
+    private int k30, k31, k32, k33, k34, k35, k36, k37, k38, k39;
+
+    @Override
+    public void setKey(byte[] key){
+        super.setKey(key);
+        k0 = K[0]; k1 = K[1]; k2 = K[2]; k3 = K[3]; k4 = K[4];
+        k5 = K[5]; k6 = K[6]; k7 = K[7]; k8 = K[8]; k9 = K[9];
+        k10 = K[10]; k11 = K[11]; k12 = K[12]; k13 = K[13]; k14 = K[14];
+        k15 = K[15]; k16 = K[16]; k17 = K[17]; k18 = K[18]; k19 = K[19];
+        k20 = K[20]; k21 = K[21]; k22 = K[22]; k23 = K[23]; k24 = K[24];
+        k25 = K[25]; k26 = K[26]; k27 = K[27]; k28 = K[28]; k29 = K[29];
+        k30 = K[30]; k31 = K[31]; k32 = K[32]; k33 = K[33]; k34 = K[34];
+        k35 = K[35]; k36 = K[36]; k37 = K[37]; k38 = K[38]; k39 = K[39];
+    }
+
+    @Override
+    public void encryptBlock(byte[] in, int inOff, byte[] out, int outOff){
+        int a = leToInt(in, inOff) + k0;
+        int b = leToInt(in, inOff + 4) + k1;
+        int c = leToInt(in, inOff + 8) + k2;
+        int d = leToInt(in, inOff + 12) + k3;
+        int t, r, m, l;
+
+        // прямое перемешивание
+        b = (b ^ S[a & 0xff]) + S[256 + ((a >>> 8) & 0xff)];
+        c += S[(a >>> 16) & 0xff];
+        d ^= S[256 + (a >>> 24)];
+        a = Integer.rotateRight(a, 24) + d;
+        c = (c ^ S[b & 0xff]) + S[256 + ((b >>> 8) & 0xff)];
+        d += S[(b >>> 16) & 0xff];
+        a ^= S[256 + (b >>> 24)];
+        b = Integer.rotateRight(b, 24) + c;
+        d = (d ^ S[c & 0xff]) + S[256 + ((c >>> 8) & 0xff)];
+        a += S[(c >>> 16) & 0xff];
+        b ^= S[256 + (c >>> 24)];
+        c = Integer.rotateRight(c, 24);
+        a = (a ^ S[d & 0xff]) + S[256 + ((d >>> 8) & 0xff)];
+        b += S[(d >>> 16) & 0xff];
+        c ^= S[256 + (d >>> 24)];
+        d = Integer.rotateRight(d, 24);
+        b = (b ^ S[a & 0xff]) + S[256 + ((a >>> 8) & 0xff)];
+        c += S[(a >>> 16) & 0xff];
+        d ^= S[256 + (a >>> 24)];
+        a = Integer.rotateRight(a, 24) + d;
+        c = (c ^ S[b & 0xff]) + S[256 + ((b >>> 8) & 0xff)];
+        d += S[(b >>> 16) & 0xff];
+        a ^= S[256 + (b >>> 24)];
+        b = Integer.rotateRight(b, 24) + c;
+        d = (d ^ S[c & 0xff]) + S[256 + ((c >>> 8) & 0xff)];
+        a += S[(c >>> 16) & 0xff];
+        b ^= S[256 + (c >>> 24)];
+        c = Integer.rotateRight(c, 24);
+        a = (a ^ S[d & 0xff]) + S[256 + ((d >>> 8) & 0xff)];
+        b += S[(d >>> 16) & 0xff];
+        c ^= S[256 + (d >>> 24)];
+        d = Integer.rotateRight(d, 24);
+
+        // криптографическое ядро
+        t = Integer.rotateLeft(a, 13);
+        r = Integer.rotateLeft(t * k5, 10);
+        m = Integer.rotateLeft(a + k4, r >>> 5);
+        l = Integer.rotateLeft(S[m & 0x1ff] ^ (r >>> 5) ^ r, r);
+        b += l; c += m; d ^= r; a = t;
+        t = Integer.rotateLeft(b, 13);
+        r = Integer.rotateLeft(t * k7, 10);
+        m = Integer.rotateLeft(b + k6, r >>> 5);
+        l = Integer.rotateLeft(S[m & 0x1ff] ^ (r >>> 5) ^ r, r);
+        c += l; d += m; a ^= r; b = t;
+        t = Integer.rotateLeft(c, 13);
+        r = Integer.rotateLeft(t * k9, 10);
+        m = Integer.rotateLeft(c + k8, r >>> 5);
+        l = Integer.rotateLeft(S[m & 0x1ff] ^ (r >>> 5) ^ r, r);
+        d += l; a += m; b ^= r; c = t;
+        t = Integer.rotateLeft(d, 13);
+        r = Integer.rotateLeft(t * k11, 10);
+        m = Integer.rotateLeft(d + k10, r >>> 5);
+        l = Integer.rotateLeft(S[m & 0x1ff] ^ (r >>> 5) ^ r, r);
+        a += l; b += m; c ^= r; d = t;
+        t = Integer.rotateLeft(a, 13);
+        r = Integer.rotateLeft(t * k13, 10);
+        m = Integer.rotateLeft(a + k12, r >>> 5);
+        l = Integer.rotateLeft(S[m & 0x1ff] ^ (r >>> 5) ^ r, r);
+        b += l; c += m; d ^= r; a = t;
+        t = Integer.rotateLeft(b, 13);
+        r = Integer.rotateLeft(t * k15, 10);
+        m = Integer.rotateLeft(b + k14, r >>> 5);
+        l = Integer.rotateLeft(S[m & 0x1ff] ^ (r >>> 5) ^ r, r);
+        c += l; d += m; a ^= r; b = t;
+        t = Integer.rotateLeft(c, 13);
+        r = Integer.rotateLeft(t * k17, 10);
+        m = Integer.rotateLeft(c + k16, r >>> 5);
+        l = Integer.rotateLeft(S[m & 0x1ff] ^ (r >>> 5) ^ r, r);
+        d += l; a += m; b ^= r; c = t;
+        t = Integer.rotateLeft(d, 13);
+        r = Integer.rotateLeft(t * k19, 10);
+        m = Integer.rotateLeft(d + k18, r >>> 5);
+        l = Integer.rotateLeft(S[m & 0x1ff] ^ (r >>> 5) ^ r, r);
+        a += l; b += m; c ^= r; d = t;
+        t = Integer.rotateLeft(a, 13);
+        r = Integer.rotateLeft(t * k21, 10);
+        m = Integer.rotateLeft(a + k20, r >>> 5);
+        l = Integer.rotateLeft(S[m & 0x1ff] ^ (r >>> 5) ^ r, r);
+        b ^= r; c += m; d += l; a = t;
+        t = Integer.rotateLeft(b, 13);
+        r = Integer.rotateLeft(t * k23, 10);
+        m = Integer.rotateLeft(b + k22, r >>> 5);
+        l = Integer.rotateLeft(S[m & 0x1ff] ^ (r >>> 5) ^ r, r);
+        c ^= r; d += m; a += l; b = t;
+        t = Integer.rotateLeft(c, 13);
+        r = Integer.rotateLeft(t * k25, 10);
+        m = Integer.rotateLeft(c + k24, r >>> 5);
+        l = Integer.rotateLeft(S[m & 0x1ff] ^ (r >>> 5) ^ r, r);
+        d ^= r; a += m; b += l; c = t;
+        t = Integer.rotateLeft(d, 13);
+        r = Integer.rotateLeft(t * k27, 10);
+        m = Integer.rotateLeft(d + k26, r >>> 5);
+        l = Integer.rotateLeft(S[m & 0x1ff] ^ (r >>> 5) ^ r, r);
+        a ^= r; b += m; c += l; d = t;
+        t = Integer.rotateLeft(a, 13);
+        r = Integer.rotateLeft(t * k29, 10);
+        m = Integer.rotateLeft(a + k28, r >>> 5);
+        l = Integer.rotateLeft(S[m & 0x1ff] ^ (r >>> 5) ^ r, r);
+        b ^= r; c += m; d += l; a = t;
+        t = Integer.rotateLeft(b, 13);
+        r = Integer.rotateLeft(t * k31, 10);
+        m = Integer.rotateLeft(b + k30, r >>> 5);
+        l = Integer.rotateLeft(S[m & 0x1ff] ^ (r >>> 5) ^ r, r);
+        c ^= r; d += m; a += l; b = t;
+        t = Integer.rotateLeft(c, 13);
+        r = Integer.rotateLeft(t * k33, 10);
+        m = Integer.rotateLeft(c + k32, r >>> 5);
+        l = Integer.rotateLeft(S[m & 0x1ff] ^ (r >>> 5) ^ r, r);
+        d ^= r; a += m; b += l; c = t;
+        t = Integer.rotateLeft(d, 13);
+        r = Integer.rotateLeft(t * k35, 10);
+        m = Integer.rotateLeft(d + k34, r >>> 5);
+        l = Integer.rotateLeft(S[m & 0x1ff] ^ (r >>> 5) ^ r, r);
+        a ^= r; b += m; c += l; d = t;
+
+        // обратное перемешивание
+        b ^= S[256 + (a & 0xff)];
+        c -= S[a >>> 24];
+        d = (d - S[256 + ((a >>> 16) & 0xff)]) ^ S[(a >>> 8) & 0xff];
+        a = Integer.rotateLeft(a, 24);
+        c ^= S[256 + (b & 0xff)];
+        d -= S[b >>> 24];
+        a = (a - S[256 + ((b >>> 16) & 0xff)]) ^ S[(b >>> 8) & 0xff];
+        b = Integer.rotateLeft(b, 24);
+        c -= b;
+        d ^= S[256 + (c & 0xff)];
+        a -= S[c >>> 24];
+        b = (b - S[256 + ((c >>> 16) & 0xff)]) ^ S[(c >>> 8) & 0xff];
+        c = Integer.rotateLeft(c, 24);
+        d -= a;
+        a ^= S[256 + (d & 0xff)];
+        b -= S[d >>> 24];
+        c = (c - S[256 + ((d >>> 16) & 0xff)]) ^ S[(d >>> 8) & 0xff];
+        d = Integer.rotateLeft(d, 24);
+        b ^= S[256 + (a & 0xff)];
+        c -= S[a >>> 24];
+        d = (d - S[256 + ((a >>> 16) & 0xff)]) ^ S[(a >>> 8) & 0xff];
+        a = Integer.rotateLeft(a, 24);
+        c ^= S[256 + (b & 0xff)];
+        d -= S[b >>> 24];
+        a = (a - S[256 + ((b >>> 16) & 0xff)]) ^ S[(b >>> 8) & 0xff];
+        b = Integer.rotateLeft(b, 24);
+        c -= b;
+        d ^= S[256 + (c & 0xff)];
+        a -= S[c >>> 24];
+        b = (b - S[256 + ((c >>> 16) & 0xff)]) ^ S[(c >>> 8) & 0xff];
+        c = Integer.rotateLeft(c, 24);
+        d -= a;
+        a ^= S[256 + (d & 0xff)];
+        b -= S[d >>> 24];
+        c = (c - S[256 + ((d >>> 16) & 0xff)]) ^ S[(d >>> 8) & 0xff];
+        d = Integer.rotateLeft(d, 24);
+
+        intToLe(a - k36, out, outOff);
+        intToLe(b - k37, out, outOff + 4);
+        intToLe(c - k38, out, outOff + 8);
+        intToLe(d - k39, out, outOff + 12);
+    }
+
+    @Override
+    public void decryptBlock(byte[] in, int inOff, byte[] out, int outOff){
+        int a = leToInt(in, inOff) + k36;
+        int b = leToInt(in, inOff + 4) + k37;
+        int c = leToInt(in, inOff + 8) + k38;
+        int d = leToInt(in, inOff + 12) + k39;
+        int t, r, m, l;
+
+        // обращение обратного перемешивания
+        d = Integer.rotateRight(d, 24);
+        c = (c ^ S[(d >>> 8) & 0xff]) + S[256 + ((d >>> 16) & 0xff)];
+        b += S[d >>> 24];
+        a ^= S[256 + (d & 0xff)];
+        d += a;
+        c = Integer.rotateRight(c, 24);
+        b = (b ^ S[(c >>> 8) & 0xff]) + S[256 + ((c >>> 16) & 0xff)];
+        a += S[c >>> 24];
+        d ^= S[256 + (c & 0xff)];
+        c += b;
+        b = Integer.rotateRight(b, 24);
+        a = (a ^ S[(b >>> 8) & 0xff]) + S[256 + ((b >>> 16) & 0xff)];
+        d += S[b >>> 24];
+        c ^= S[256 + (b & 0xff)];
+        a = Integer.rotateRight(a, 24);
+        d = (d ^ S[(a >>> 8) & 0xff]) + S[256 + ((a >>> 16) & 0xff)];
+        c += S[a >>> 24];
+        b ^= S[256 + (a & 0xff)];
+        d = Integer.rotateRight(d, 24);
+        c = (c ^ S[(d >>> 8) & 0xff]) + S[256 + ((d >>> 16) & 0xff)];
+        b += S[d >>> 24];
+        a ^= S[256 + (d & 0xff)];
+        d += a;
+        c = Integer.rotateRight(c, 24);
+        b = (b ^ S[(c >>> 8) & 0xff]) + S[256 + ((c >>> 16) & 0xff)];
+        a += S[c >>> 24];
+        d ^= S[256 + (c & 0xff)];
+        c += b;
+        b = Integer.rotateRight(b, 24);
+        a = (a ^ S[(b >>> 8) & 0xff]) + S[256 + ((b >>> 16) & 0xff)];
+        d += S[b >>> 24];
+        c ^= S[256 + (b & 0xff)];
+        a = Integer.rotateRight(a, 24);
+        d = (d ^ S[(a >>> 8) & 0xff]) + S[256 + ((a >>> 16) & 0xff)];
+        c += S[a >>> 24];
+        b ^= S[256 + (a & 0xff)];
+
+        // обращение ядра
+        t = d;
+        d = Integer.rotateRight(t, 13);
+        r = Integer.rotateLeft(t * k35, 10);
+        m = Integer.rotateLeft(d + k34, r >>> 5);
+        l = Integer.rotateLeft(S[m & 0x1ff] ^ (r >>> 5) ^ r, r);
+        a ^= r; b -= m; c -= l;
+        t = c;
+        c = Integer.rotateRight(t, 13);
+        r = Integer.rotateLeft(t * k33, 10);
+        m = Integer.rotateLeft(c + k32, r >>> 5);
+        l = Integer.rotateLeft(S[m & 0x1ff] ^ (r >>> 5) ^ r, r);
+        d ^= r; a -= m; b -= l;
+        t = b;
+        b = Integer.rotateRight(t, 13);
+        r = Integer.rotateLeft(t * k31, 10);
+        m = Integer.rotateLeft(b + k30, r >>> 5);
+        l = Integer.rotateLeft(S[m & 0x1ff] ^ (r >>> 5) ^ r, r);
+        c ^= r; d -= m; a -= l;
+        t = a;
+        a = Integer.rotateRight(t, 13);
+        r = Integer.rotateLeft(t * k29, 10);
+        m = Integer.rotateLeft(a + k28, r >>> 5);
+        l = Integer.rotateLeft(S[m & 0x1ff] ^ (r >>> 5) ^ r, r);
+        b ^= r; c -= m; d -= l;
+        t = d;
+        d = Integer.rotateRight(t, 13);
+        r = Integer.rotateLeft(t * k27, 10);
+        m = Integer.rotateLeft(d + k26, r >>> 5);
+        l = Integer.rotateLeft(S[m & 0x1ff] ^ (r >>> 5) ^ r, r);
+        a ^= r; b -= m; c -= l;
+        t = c;
+        c = Integer.rotateRight(t, 13);
+        r = Integer.rotateLeft(t * k25, 10);
+        m = Integer.rotateLeft(c + k24, r >>> 5);
+        l = Integer.rotateLeft(S[m & 0x1ff] ^ (r >>> 5) ^ r, r);
+        d ^= r; a -= m; b -= l;
+        t = b;
+        b = Integer.rotateRight(t, 13);
+        r = Integer.rotateLeft(t * k23, 10);
+        m = Integer.rotateLeft(b + k22, r >>> 5);
+        l = Integer.rotateLeft(S[m & 0x1ff] ^ (r >>> 5) ^ r, r);
+        c ^= r; d -= m; a -= l;
+        t = a;
+        a = Integer.rotateRight(t, 13);
+        r = Integer.rotateLeft(t * k21, 10);
+        m = Integer.rotateLeft(a + k20, r >>> 5);
+        l = Integer.rotateLeft(S[m & 0x1ff] ^ (r >>> 5) ^ r, r);
+        b ^= r; c -= m; d -= l;
+        t = d;
+        d = Integer.rotateRight(t, 13);
+        r = Integer.rotateLeft(t * k19, 10);
+        m = Integer.rotateLeft(d + k18, r >>> 5);
+        l = Integer.rotateLeft(S[m & 0x1ff] ^ (r >>> 5) ^ r, r);
+        a -= l; b -= m; c ^= r;
+        t = c;
+        c = Integer.rotateRight(t, 13);
+        r = Integer.rotateLeft(t * k17, 10);
+        m = Integer.rotateLeft(c + k16, r >>> 5);
+        l = Integer.rotateLeft(S[m & 0x1ff] ^ (r >>> 5) ^ r, r);
+        d -= l; a -= m; b ^= r;
+        t = b;
+        b = Integer.rotateRight(t, 13);
+        r = Integer.rotateLeft(t * k15, 10);
+        m = Integer.rotateLeft(b + k14, r >>> 5);
+        l = Integer.rotateLeft(S[m & 0x1ff] ^ (r >>> 5) ^ r, r);
+        c -= l; d -= m; a ^= r;
+        t = a;
+        a = Integer.rotateRight(t, 13);
+        r = Integer.rotateLeft(t * k13, 10);
+        m = Integer.rotateLeft(a + k12, r >>> 5);
+        l = Integer.rotateLeft(S[m & 0x1ff] ^ (r >>> 5) ^ r, r);
+        b -= l; c -= m; d ^= r;
+        t = d;
+        d = Integer.rotateRight(t, 13);
+        r = Integer.rotateLeft(t * k11, 10);
+        m = Integer.rotateLeft(d + k10, r >>> 5);
+        l = Integer.rotateLeft(S[m & 0x1ff] ^ (r >>> 5) ^ r, r);
+        a -= l; b -= m; c ^= r;
+        t = c;
+        c = Integer.rotateRight(t, 13);
+        r = Integer.rotateLeft(t * k9, 10);
+        m = Integer.rotateLeft(c + k8, r >>> 5);
+        l = Integer.rotateLeft(S[m & 0x1ff] ^ (r >>> 5) ^ r, r);
+        d -= l; a -= m; b ^= r;
+        t = b;
+        b = Integer.rotateRight(t, 13);
+        r = Integer.rotateLeft(t * k7, 10);
+        m = Integer.rotateLeft(b + k6, r >>> 5);
+        l = Integer.rotateLeft(S[m & 0x1ff] ^ (r >>> 5) ^ r, r);
+        c -= l; d -= m; a ^= r;
+        t = a;
+        a = Integer.rotateRight(t, 13);
+        r = Integer.rotateLeft(t * k5, 10);
+        m = Integer.rotateLeft(a + k4, r >>> 5);
+        l = Integer.rotateLeft(S[m & 0x1ff] ^ (r >>> 5) ^ r, r);
+        b -= l; c -= m; d ^= r;
+
+        // обращение прямого перемешивания
+        d = Integer.rotateLeft(d, 24);
+        c ^= S[256 + (d >>> 24)];
+        b -= S[(d >>> 16) & 0xff];
+        a = (a - S[256 + ((d >>> 8) & 0xff)]) ^ S[d & 0xff];
+        c = Integer.rotateLeft(c, 24);
+        b ^= S[256 + (c >>> 24)];
+        a -= S[(c >>> 16) & 0xff];
+        d = (d - S[256 + ((c >>> 8) & 0xff)]) ^ S[c & 0xff];
+        b -= c;
+        b = Integer.rotateLeft(b, 24);
+        a ^= S[256 + (b >>> 24)];
+        d -= S[(b >>> 16) & 0xff];
+        c = (c - S[256 + ((b >>> 8) & 0xff)]) ^ S[b & 0xff];
+        a -= d;
+        a = Integer.rotateLeft(a, 24);
+        d ^= S[256 + (a >>> 24)];
+        c -= S[(a >>> 16) & 0xff];
+        b = (b - S[256 + ((a >>> 8) & 0xff)]) ^ S[a & 0xff];
+        d = Integer.rotateLeft(d, 24);
+        c ^= S[256 + (d >>> 24)];
+        b -= S[(d >>> 16) & 0xff];
+        a = (a - S[256 + ((d >>> 8) & 0xff)]) ^ S[d & 0xff];
+        c = Integer.rotateLeft(c, 24);
+        b ^= S[256 + (c >>> 24)];
+        a -= S[(c >>> 16) & 0xff];
+        d = (d - S[256 + ((c >>> 8) & 0xff)]) ^ S[c & 0xff];
+        b -= c;
+        b = Integer.rotateLeft(b, 24);
+        a ^= S[256 + (b >>> 24)];
+        d -= S[(b >>> 16) & 0xff];
+        c = (c - S[256 + ((b >>> 8) & 0xff)]) ^ S[b & 0xff];
+        a -= d;
+        a = Integer.rotateLeft(a, 24);
+        d ^= S[256 + (a >>> 24)];
+        c -= S[(a >>> 16) & 0xff];
+        b = (b - S[256 + ((a >>> 8) & 0xff)]) ^ S[a & 0xff];
+
+        intToLe(a - k0, out, outOff);
+        intToLe(b - k1, out, outOff + 4);
+        intToLe(c - k2, out, outOff + 8);
+        intToLe(d - k3, out, outOff + 12);
+    }
+
+    // пачка идёт парами блоков через encrypt2/decrypt2, нечётный последний - отдельно
+    @Override
+    public void encryptBlocks(byte[] in, int inOff, byte[] out, int outOff, int blocks){
+        int i = 0;
+        for (; i + 2 <= blocks; i += 2, inOff += 32, outOff += 32)
+            encrypt2(in, inOff, out, outOff);
+        if (i < blocks) encryptBlock(in, inOff, out, outOff);
+    }
+
+    @Override
+    public void decryptBlocks(byte[] in, int inOff, byte[] out, int outOff, int blocks){
+        int i = 0;
+        for (; i + 2 <= blocks; i += 2, inOff += 32, outOff += 32)
+            decrypt2(in, inOff, out, outOff);
+        if (i < blocks) decryptBlock(in, inOff, out, outOff);
+    }
+
+    // два соседних блока в одних и тех же развёрнутых раундах: независимые цепочки
+    // двух блоков чередуются. Шире двух метод превышает предел размера для JIT (8000 байт)
+    private void encrypt2(byte[] in, int inOff, byte[] out, int outOff){
+        int a0 = leToInt(in, inOff) + k0;
+        int a1 = leToInt(in, inOff + 16) + k0;
+        int b0 = leToInt(in, inOff + 4) + k1;
+        int b1 = leToInt(in, inOff + 20) + k1;
+        int c0 = leToInt(in, inOff + 8) + k2;
+        int c1 = leToInt(in, inOff + 24) + k2;
+        int d0 = leToInt(in, inOff + 12) + k3;
+        int d1 = leToInt(in, inOff + 28) + k3;
+        int t0, r0, m0, l0, t1, r1, m1, l1;
+
+        // прямое перемешивание
+        b0 = (b0 ^ S[a0 & 0xff]) + S[256 + ((a0 >>> 8) & 0xff)];
+        b1 = (b1 ^ S[a1 & 0xff]) + S[256 + ((a1 >>> 8) & 0xff)];
+        c0 += S[(a0 >>> 16) & 0xff];
+        c1 += S[(a1 >>> 16) & 0xff];
+        d0 ^= S[256 + (a0 >>> 24)];
+        d1 ^= S[256 + (a1 >>> 24)];
+        a0 = Integer.rotateRight(a0, 24) + d0;
+        a1 = Integer.rotateRight(a1, 24) + d1;
+        c0 = (c0 ^ S[b0 & 0xff]) + S[256 + ((b0 >>> 8) & 0xff)];
+        c1 = (c1 ^ S[b1 & 0xff]) + S[256 + ((b1 >>> 8) & 0xff)];
+        d0 += S[(b0 >>> 16) & 0xff];
+        d1 += S[(b1 >>> 16) & 0xff];
+        a0 ^= S[256 + (b0 >>> 24)];
+        a1 ^= S[256 + (b1 >>> 24)];
+        b0 = Integer.rotateRight(b0, 24) + c0;
+        b1 = Integer.rotateRight(b1, 24) + c1;
+        d0 = (d0 ^ S[c0 & 0xff]) + S[256 + ((c0 >>> 8) & 0xff)];
+        d1 = (d1 ^ S[c1 & 0xff]) + S[256 + ((c1 >>> 8) & 0xff)];
+        a0 += S[(c0 >>> 16) & 0xff];
+        a1 += S[(c1 >>> 16) & 0xff];
+        b0 ^= S[256 + (c0 >>> 24)];
+        b1 ^= S[256 + (c1 >>> 24)];
+        c0 = Integer.rotateRight(c0, 24);
+        c1 = Integer.rotateRight(c1, 24);
+        a0 = (a0 ^ S[d0 & 0xff]) + S[256 + ((d0 >>> 8) & 0xff)];
+        a1 = (a1 ^ S[d1 & 0xff]) + S[256 + ((d1 >>> 8) & 0xff)];
+        b0 += S[(d0 >>> 16) & 0xff];
+        b1 += S[(d1 >>> 16) & 0xff];
+        c0 ^= S[256 + (d0 >>> 24)];
+        c1 ^= S[256 + (d1 >>> 24)];
+        d0 = Integer.rotateRight(d0, 24);
+        d1 = Integer.rotateRight(d1, 24);
+        b0 = (b0 ^ S[a0 & 0xff]) + S[256 + ((a0 >>> 8) & 0xff)];
+        b1 = (b1 ^ S[a1 & 0xff]) + S[256 + ((a1 >>> 8) & 0xff)];
+        c0 += S[(a0 >>> 16) & 0xff];
+        c1 += S[(a1 >>> 16) & 0xff];
+        d0 ^= S[256 + (a0 >>> 24)];
+        d1 ^= S[256 + (a1 >>> 24)];
+        a0 = Integer.rotateRight(a0, 24) + d0;
+        a1 = Integer.rotateRight(a1, 24) + d1;
+        c0 = (c0 ^ S[b0 & 0xff]) + S[256 + ((b0 >>> 8) & 0xff)];
+        c1 = (c1 ^ S[b1 & 0xff]) + S[256 + ((b1 >>> 8) & 0xff)];
+        d0 += S[(b0 >>> 16) & 0xff];
+        d1 += S[(b1 >>> 16) & 0xff];
+        a0 ^= S[256 + (b0 >>> 24)];
+        a1 ^= S[256 + (b1 >>> 24)];
+        b0 = Integer.rotateRight(b0, 24) + c0;
+        b1 = Integer.rotateRight(b1, 24) + c1;
+        d0 = (d0 ^ S[c0 & 0xff]) + S[256 + ((c0 >>> 8) & 0xff)];
+        d1 = (d1 ^ S[c1 & 0xff]) + S[256 + ((c1 >>> 8) & 0xff)];
+        a0 += S[(c0 >>> 16) & 0xff];
+        a1 += S[(c1 >>> 16) & 0xff];
+        b0 ^= S[256 + (c0 >>> 24)];
+        b1 ^= S[256 + (c1 >>> 24)];
+        c0 = Integer.rotateRight(c0, 24);
+        c1 = Integer.rotateRight(c1, 24);
+        a0 = (a0 ^ S[d0 & 0xff]) + S[256 + ((d0 >>> 8) & 0xff)];
+        a1 = (a1 ^ S[d1 & 0xff]) + S[256 + ((d1 >>> 8) & 0xff)];
+        b0 += S[(d0 >>> 16) & 0xff];
+        b1 += S[(d1 >>> 16) & 0xff];
+        c0 ^= S[256 + (d0 >>> 24)];
+        c1 ^= S[256 + (d1 >>> 24)];
+        d0 = Integer.rotateRight(d0, 24);
+        d1 = Integer.rotateRight(d1, 24);
+
+        // криптографическое ядро
+        t0 = Integer.rotateLeft(a0, 13);
+        t1 = Integer.rotateLeft(a1, 13);
+        r0 = Integer.rotateLeft(t0 * k5, 10);
+        r1 = Integer.rotateLeft(t1 * k5, 10);
+        m0 = Integer.rotateLeft(a0 + k4, r0 >>> 5);
+        m1 = Integer.rotateLeft(a1 + k4, r1 >>> 5);
+        l0 = Integer.rotateLeft(S[m0 & 0x1ff] ^ (r0 >>> 5) ^ r0, r0);
+        l1 = Integer.rotateLeft(S[m1 & 0x1ff] ^ (r1 >>> 5) ^ r1, r1);
+        b0 += l0; c0 += m0; d0 ^= r0; a0 = t0;
+        b1 += l1; c1 += m1; d1 ^= r1; a1 = t1;
+        t0 = Integer.rotateLeft(b0, 13);
+        t1 = Integer.rotateLeft(b1, 13);
+        r0 = Integer.rotateLeft(t0 * k7, 10);
+        r1 = Integer.rotateLeft(t1 * k7, 10);
+        m0 = Integer.rotateLeft(b0 + k6, r0 >>> 5);
+        m1 = Integer.rotateLeft(b1 + k6, r1 >>> 5);
+        l0 = Integer.rotateLeft(S[m0 & 0x1ff] ^ (r0 >>> 5) ^ r0, r0);
+        l1 = Integer.rotateLeft(S[m1 & 0x1ff] ^ (r1 >>> 5) ^ r1, r1);
+        c0 += l0; d0 += m0; a0 ^= r0; b0 = t0;
+        c1 += l1; d1 += m1; a1 ^= r1; b1 = t1;
+        t0 = Integer.rotateLeft(c0, 13);
+        t1 = Integer.rotateLeft(c1, 13);
+        r0 = Integer.rotateLeft(t0 * k9, 10);
+        r1 = Integer.rotateLeft(t1 * k9, 10);
+        m0 = Integer.rotateLeft(c0 + k8, r0 >>> 5);
+        m1 = Integer.rotateLeft(c1 + k8, r1 >>> 5);
+        l0 = Integer.rotateLeft(S[m0 & 0x1ff] ^ (r0 >>> 5) ^ r0, r0);
+        l1 = Integer.rotateLeft(S[m1 & 0x1ff] ^ (r1 >>> 5) ^ r1, r1);
+        d0 += l0; a0 += m0; b0 ^= r0; c0 = t0;
+        d1 += l1; a1 += m1; b1 ^= r1; c1 = t1;
+        t0 = Integer.rotateLeft(d0, 13);
+        t1 = Integer.rotateLeft(d1, 13);
+        r0 = Integer.rotateLeft(t0 * k11, 10);
+        r1 = Integer.rotateLeft(t1 * k11, 10);
+        m0 = Integer.rotateLeft(d0 + k10, r0 >>> 5);
+        m1 = Integer.rotateLeft(d1 + k10, r1 >>> 5);
+        l0 = Integer.rotateLeft(S[m0 & 0x1ff] ^ (r0 >>> 5) ^ r0, r0);
+        l1 = Integer.rotateLeft(S[m1 & 0x1ff] ^ (r1 >>> 5) ^ r1, r1);
+        a0 += l0; b0 += m0; c0 ^= r0; d0 = t0;
+        a1 += l1; b1 += m1; c1 ^= r1; d1 = t1;
+        t0 = Integer.rotateLeft(a0, 13);
+        t1 = Integer.rotateLeft(a1, 13);
+        r0 = Integer.rotateLeft(t0 * k13, 10);
+        r1 = Integer.rotateLeft(t1 * k13, 10);
+        m0 = Integer.rotateLeft(a0 + k12, r0 >>> 5);
+        m1 = Integer.rotateLeft(a1 + k12, r1 >>> 5);
+        l0 = Integer.rotateLeft(S[m0 & 0x1ff] ^ (r0 >>> 5) ^ r0, r0);
+        l1 = Integer.rotateLeft(S[m1 & 0x1ff] ^ (r1 >>> 5) ^ r1, r1);
+        b0 += l0; c0 += m0; d0 ^= r0; a0 = t0;
+        b1 += l1; c1 += m1; d1 ^= r1; a1 = t1;
+        t0 = Integer.rotateLeft(b0, 13);
+        t1 = Integer.rotateLeft(b1, 13);
+        r0 = Integer.rotateLeft(t0 * k15, 10);
+        r1 = Integer.rotateLeft(t1 * k15, 10);
+        m0 = Integer.rotateLeft(b0 + k14, r0 >>> 5);
+        m1 = Integer.rotateLeft(b1 + k14, r1 >>> 5);
+        l0 = Integer.rotateLeft(S[m0 & 0x1ff] ^ (r0 >>> 5) ^ r0, r0);
+        l1 = Integer.rotateLeft(S[m1 & 0x1ff] ^ (r1 >>> 5) ^ r1, r1);
+        c0 += l0; d0 += m0; a0 ^= r0; b0 = t0;
+        c1 += l1; d1 += m1; a1 ^= r1; b1 = t1;
+        t0 = Integer.rotateLeft(c0, 13);
+        t1 = Integer.rotateLeft(c1, 13);
+        r0 = Integer.rotateLeft(t0 * k17, 10);
+        r1 = Integer.rotateLeft(t1 * k17, 10);
+        m0 = Integer.rotateLeft(c0 + k16, r0 >>> 5);
+        m1 = Integer.rotateLeft(c1 + k16, r1 >>> 5);
+        l0 = Integer.rotateLeft(S[m0 & 0x1ff] ^ (r0 >>> 5) ^ r0, r0);
+        l1 = Integer.rotateLeft(S[m1 & 0x1ff] ^ (r1 >>> 5) ^ r1, r1);
+        d0 += l0; a0 += m0; b0 ^= r0; c0 = t0;
+        d1 += l1; a1 += m1; b1 ^= r1; c1 = t1;
+        t0 = Integer.rotateLeft(d0, 13);
+        t1 = Integer.rotateLeft(d1, 13);
+        r0 = Integer.rotateLeft(t0 * k19, 10);
+        r1 = Integer.rotateLeft(t1 * k19, 10);
+        m0 = Integer.rotateLeft(d0 + k18, r0 >>> 5);
+        m1 = Integer.rotateLeft(d1 + k18, r1 >>> 5);
+        l0 = Integer.rotateLeft(S[m0 & 0x1ff] ^ (r0 >>> 5) ^ r0, r0);
+        l1 = Integer.rotateLeft(S[m1 & 0x1ff] ^ (r1 >>> 5) ^ r1, r1);
+        a0 += l0; b0 += m0; c0 ^= r0; d0 = t0;
+        a1 += l1; b1 += m1; c1 ^= r1; d1 = t1;
+        t0 = Integer.rotateLeft(a0, 13);
+        t1 = Integer.rotateLeft(a1, 13);
+        r0 = Integer.rotateLeft(t0 * k21, 10);
+        r1 = Integer.rotateLeft(t1 * k21, 10);
+        m0 = Integer.rotateLeft(a0 + k20, r0 >>> 5);
+        m1 = Integer.rotateLeft(a1 + k20, r1 >>> 5);
+        l0 = Integer.rotateLeft(S[m0 & 0x1ff] ^ (r0 >>> 5) ^ r0, r0);
+        l1 = Integer.rotateLeft(S[m1 & 0x1ff] ^ (r1 >>> 5) ^ r1, r1);
+        b0 ^= r0; c0 += m0; d0 += l0; a0 = t0;
+        b1 ^= r1; c1 += m1; d1 += l1; a1 = t1;
+        t0 = Integer.rotateLeft(b0, 13);
+        t1 = Integer.rotateLeft(b1, 13);
+        r0 = Integer.rotateLeft(t0 * k23, 10);
+        r1 = Integer.rotateLeft(t1 * k23, 10);
+        m0 = Integer.rotateLeft(b0 + k22, r0 >>> 5);
+        m1 = Integer.rotateLeft(b1 + k22, r1 >>> 5);
+        l0 = Integer.rotateLeft(S[m0 & 0x1ff] ^ (r0 >>> 5) ^ r0, r0);
+        l1 = Integer.rotateLeft(S[m1 & 0x1ff] ^ (r1 >>> 5) ^ r1, r1);
+        c0 ^= r0; d0 += m0; a0 += l0; b0 = t0;
+        c1 ^= r1; d1 += m1; a1 += l1; b1 = t1;
+        t0 = Integer.rotateLeft(c0, 13);
+        t1 = Integer.rotateLeft(c1, 13);
+        r0 = Integer.rotateLeft(t0 * k25, 10);
+        r1 = Integer.rotateLeft(t1 * k25, 10);
+        m0 = Integer.rotateLeft(c0 + k24, r0 >>> 5);
+        m1 = Integer.rotateLeft(c1 + k24, r1 >>> 5);
+        l0 = Integer.rotateLeft(S[m0 & 0x1ff] ^ (r0 >>> 5) ^ r0, r0);
+        l1 = Integer.rotateLeft(S[m1 & 0x1ff] ^ (r1 >>> 5) ^ r1, r1);
+        d0 ^= r0; a0 += m0; b0 += l0; c0 = t0;
+        d1 ^= r1; a1 += m1; b1 += l1; c1 = t1;
+        t0 = Integer.rotateLeft(d0, 13);
+        t1 = Integer.rotateLeft(d1, 13);
+        r0 = Integer.rotateLeft(t0 * k27, 10);
+        r1 = Integer.rotateLeft(t1 * k27, 10);
+        m0 = Integer.rotateLeft(d0 + k26, r0 >>> 5);
+        m1 = Integer.rotateLeft(d1 + k26, r1 >>> 5);
+        l0 = Integer.rotateLeft(S[m0 & 0x1ff] ^ (r0 >>> 5) ^ r0, r0);
+        l1 = Integer.rotateLeft(S[m1 & 0x1ff] ^ (r1 >>> 5) ^ r1, r1);
+        a0 ^= r0; b0 += m0; c0 += l0; d0 = t0;
+        a1 ^= r1; b1 += m1; c1 += l1; d1 = t1;
+        t0 = Integer.rotateLeft(a0, 13);
+        t1 = Integer.rotateLeft(a1, 13);
+        r0 = Integer.rotateLeft(t0 * k29, 10);
+        r1 = Integer.rotateLeft(t1 * k29, 10);
+        m0 = Integer.rotateLeft(a0 + k28, r0 >>> 5);
+        m1 = Integer.rotateLeft(a1 + k28, r1 >>> 5);
+        l0 = Integer.rotateLeft(S[m0 & 0x1ff] ^ (r0 >>> 5) ^ r0, r0);
+        l1 = Integer.rotateLeft(S[m1 & 0x1ff] ^ (r1 >>> 5) ^ r1, r1);
+        b0 ^= r0; c0 += m0; d0 += l0; a0 = t0;
+        b1 ^= r1; c1 += m1; d1 += l1; a1 = t1;
+        t0 = Integer.rotateLeft(b0, 13);
+        t1 = Integer.rotateLeft(b1, 13);
+        r0 = Integer.rotateLeft(t0 * k31, 10);
+        r1 = Integer.rotateLeft(t1 * k31, 10);
+        m0 = Integer.rotateLeft(b0 + k30, r0 >>> 5);
+        m1 = Integer.rotateLeft(b1 + k30, r1 >>> 5);
+        l0 = Integer.rotateLeft(S[m0 & 0x1ff] ^ (r0 >>> 5) ^ r0, r0);
+        l1 = Integer.rotateLeft(S[m1 & 0x1ff] ^ (r1 >>> 5) ^ r1, r1);
+        c0 ^= r0; d0 += m0; a0 += l0; b0 = t0;
+        c1 ^= r1; d1 += m1; a1 += l1; b1 = t1;
+        t0 = Integer.rotateLeft(c0, 13);
+        t1 = Integer.rotateLeft(c1, 13);
+        r0 = Integer.rotateLeft(t0 * k33, 10);
+        r1 = Integer.rotateLeft(t1 * k33, 10);
+        m0 = Integer.rotateLeft(c0 + k32, r0 >>> 5);
+        m1 = Integer.rotateLeft(c1 + k32, r1 >>> 5);
+        l0 = Integer.rotateLeft(S[m0 & 0x1ff] ^ (r0 >>> 5) ^ r0, r0);
+        l1 = Integer.rotateLeft(S[m1 & 0x1ff] ^ (r1 >>> 5) ^ r1, r1);
+        d0 ^= r0; a0 += m0; b0 += l0; c0 = t0;
+        d1 ^= r1; a1 += m1; b1 += l1; c1 = t1;
+        t0 = Integer.rotateLeft(d0, 13);
+        t1 = Integer.rotateLeft(d1, 13);
+        r0 = Integer.rotateLeft(t0 * k35, 10);
+        r1 = Integer.rotateLeft(t1 * k35, 10);
+        m0 = Integer.rotateLeft(d0 + k34, r0 >>> 5);
+        m1 = Integer.rotateLeft(d1 + k34, r1 >>> 5);
+        l0 = Integer.rotateLeft(S[m0 & 0x1ff] ^ (r0 >>> 5) ^ r0, r0);
+        l1 = Integer.rotateLeft(S[m1 & 0x1ff] ^ (r1 >>> 5) ^ r1, r1);
+        a0 ^= r0; b0 += m0; c0 += l0; d0 = t0;
+        a1 ^= r1; b1 += m1; c1 += l1; d1 = t1;
+
+        // обратное перемешивание
+        b0 ^= S[256 + (a0 & 0xff)];
+        b1 ^= S[256 + (a1 & 0xff)];
+        c0 -= S[a0 >>> 24];
+        c1 -= S[a1 >>> 24];
+        d0 = (d0 - S[256 + ((a0 >>> 16) & 0xff)]) ^ S[(a0 >>> 8) & 0xff];
+        d1 = (d1 - S[256 + ((a1 >>> 16) & 0xff)]) ^ S[(a1 >>> 8) & 0xff];
+        a0 = Integer.rotateLeft(a0, 24);
+        a1 = Integer.rotateLeft(a1, 24);
+        c0 ^= S[256 + (b0 & 0xff)];
+        c1 ^= S[256 + (b1 & 0xff)];
+        d0 -= S[b0 >>> 24];
+        d1 -= S[b1 >>> 24];
+        a0 = (a0 - S[256 + ((b0 >>> 16) & 0xff)]) ^ S[(b0 >>> 8) & 0xff];
+        a1 = (a1 - S[256 + ((b1 >>> 16) & 0xff)]) ^ S[(b1 >>> 8) & 0xff];
+        b0 = Integer.rotateLeft(b0, 24);
+        b1 = Integer.rotateLeft(b1, 24);
+        c0 -= b0;
+        c1 -= b1;
+        d0 ^= S[256 + (c0 & 0xff)];
+        d1 ^= S[256 + (c1 & 0xff)];
+        a0 -= S[c0 >>> 24];
+        a1 -= S[c1 >>> 24];
+        b0 = (b0 - S[256 + ((c0 >>> 16) & 0xff)]) ^ S[(c0 >>> 8) & 0xff];
+        b1 = (b1 - S[256 + ((c1 >>> 16) & 0xff)]) ^ S[(c1 >>> 8) & 0xff];
+        c0 = Integer.rotateLeft(c0, 24);
+        c1 = Integer.rotateLeft(c1, 24);
+        d0 -= a0;
+        d1 -= a1;
+        a0 ^= S[256 + (d0 & 0xff)];
+        a1 ^= S[256 + (d1 & 0xff)];
+        b0 -= S[d0 >>> 24];
+        b1 -= S[d1 >>> 24];
+        c0 = (c0 - S[256 + ((d0 >>> 16) & 0xff)]) ^ S[(d0 >>> 8) & 0xff];
+        c1 = (c1 - S[256 + ((d1 >>> 16) & 0xff)]) ^ S[(d1 >>> 8) & 0xff];
+        d0 = Integer.rotateLeft(d0, 24);
+        d1 = Integer.rotateLeft(d1, 24);
+        b0 ^= S[256 + (a0 & 0xff)];
+        b1 ^= S[256 + (a1 & 0xff)];
+        c0 -= S[a0 >>> 24];
+        c1 -= S[a1 >>> 24];
+        d0 = (d0 - S[256 + ((a0 >>> 16) & 0xff)]) ^ S[(a0 >>> 8) & 0xff];
+        d1 = (d1 - S[256 + ((a1 >>> 16) & 0xff)]) ^ S[(a1 >>> 8) & 0xff];
+        a0 = Integer.rotateLeft(a0, 24);
+        a1 = Integer.rotateLeft(a1, 24);
+        c0 ^= S[256 + (b0 & 0xff)];
+        c1 ^= S[256 + (b1 & 0xff)];
+        d0 -= S[b0 >>> 24];
+        d1 -= S[b1 >>> 24];
+        a0 = (a0 - S[256 + ((b0 >>> 16) & 0xff)]) ^ S[(b0 >>> 8) & 0xff];
+        a1 = (a1 - S[256 + ((b1 >>> 16) & 0xff)]) ^ S[(b1 >>> 8) & 0xff];
+        b0 = Integer.rotateLeft(b0, 24);
+        b1 = Integer.rotateLeft(b1, 24);
+        c0 -= b0;
+        c1 -= b1;
+        d0 ^= S[256 + (c0 & 0xff)];
+        d1 ^= S[256 + (c1 & 0xff)];
+        a0 -= S[c0 >>> 24];
+        a1 -= S[c1 >>> 24];
+        b0 = (b0 - S[256 + ((c0 >>> 16) & 0xff)]) ^ S[(c0 >>> 8) & 0xff];
+        b1 = (b1 - S[256 + ((c1 >>> 16) & 0xff)]) ^ S[(c1 >>> 8) & 0xff];
+        c0 = Integer.rotateLeft(c0, 24);
+        c1 = Integer.rotateLeft(c1, 24);
+        d0 -= a0;
+        d1 -= a1;
+        a0 ^= S[256 + (d0 & 0xff)];
+        a1 ^= S[256 + (d1 & 0xff)];
+        b0 -= S[d0 >>> 24];
+        b1 -= S[d1 >>> 24];
+        c0 = (c0 - S[256 + ((d0 >>> 16) & 0xff)]) ^ S[(d0 >>> 8) & 0xff];
+        c1 = (c1 - S[256 + ((d1 >>> 16) & 0xff)]) ^ S[(d1 >>> 8) & 0xff];
+        d0 = Integer.rotateLeft(d0, 24);
+        d1 = Integer.rotateLeft(d1, 24);
+
+        intToLe(a0 - k36, out, outOff);
+        intToLe(a1 - k36, out, outOff + 16);
+        intToLe(b0 - k37, out, outOff + 4);
+        intToLe(b1 - k37, out, outOff + 20);
+        intToLe(c0 - k38, out, outOff + 8);
+        intToLe(c1 - k38, out, outOff + 24);
+        intToLe(d0 - k39, out, outOff + 12);
+        intToLe(d1 - k39, out, outOff + 28);
+    }
+
+    private void decrypt2(byte[] in, int inOff, byte[] out, int outOff){
+        int a0 = leToInt(in, inOff) + k36;
+        int a1 = leToInt(in, inOff + 16) + k36;
+        int b0 = leToInt(in, inOff + 4) + k37;
+        int b1 = leToInt(in, inOff + 20) + k37;
+        int c0 = leToInt(in, inOff + 8) + k38;
+        int c1 = leToInt(in, inOff + 24) + k38;
+        int d0 = leToInt(in, inOff + 12) + k39;
+        int d1 = leToInt(in, inOff + 28) + k39;
+        int t0, r0, m0, l0, t1, r1, m1, l1;
+
+        // обращение обратного перемешивания
+        d0 = Integer.rotateRight(d0, 24);
+        d1 = Integer.rotateRight(d1, 24);
+        c0 = (c0 ^ S[(d0 >>> 8) & 0xff]) + S[256 + ((d0 >>> 16) & 0xff)];
+        c1 = (c1 ^ S[(d1 >>> 8) & 0xff]) + S[256 + ((d1 >>> 16) & 0xff)];
+        b0 += S[d0 >>> 24];
+        b1 += S[d1 >>> 24];
+        a0 ^= S[256 + (d0 & 0xff)];
+        a1 ^= S[256 + (d1 & 0xff)];
+        d0 += a0;
+        d1 += a1;
+        c0 = Integer.rotateRight(c0, 24);
+        c1 = Integer.rotateRight(c1, 24);
+        b0 = (b0 ^ S[(c0 >>> 8) & 0xff]) + S[256 + ((c0 >>> 16) & 0xff)];
+        b1 = (b1 ^ S[(c1 >>> 8) & 0xff]) + S[256 + ((c1 >>> 16) & 0xff)];
+        a0 += S[c0 >>> 24];
+        a1 += S[c1 >>> 24];
+        d0 ^= S[256 + (c0 & 0xff)];
+        d1 ^= S[256 + (c1 & 0xff)];
+        c0 += b0;
+        c1 += b1;
+        b0 = Integer.rotateRight(b0, 24);
+        b1 = Integer.rotateRight(b1, 24);
+        a0 = (a0 ^ S[(b0 >>> 8) & 0xff]) + S[256 + ((b0 >>> 16) & 0xff)];
+        a1 = (a1 ^ S[(b1 >>> 8) & 0xff]) + S[256 + ((b1 >>> 16) & 0xff)];
+        d0 += S[b0 >>> 24];
+        d1 += S[b1 >>> 24];
+        c0 ^= S[256 + (b0 & 0xff)];
+        c1 ^= S[256 + (b1 & 0xff)];
+        a0 = Integer.rotateRight(a0, 24);
+        a1 = Integer.rotateRight(a1, 24);
+        d0 = (d0 ^ S[(a0 >>> 8) & 0xff]) + S[256 + ((a0 >>> 16) & 0xff)];
+        d1 = (d1 ^ S[(a1 >>> 8) & 0xff]) + S[256 + ((a1 >>> 16) & 0xff)];
+        c0 += S[a0 >>> 24];
+        c1 += S[a1 >>> 24];
+        b0 ^= S[256 + (a0 & 0xff)];
+        b1 ^= S[256 + (a1 & 0xff)];
+        d0 = Integer.rotateRight(d0, 24);
+        d1 = Integer.rotateRight(d1, 24);
+        c0 = (c0 ^ S[(d0 >>> 8) & 0xff]) + S[256 + ((d0 >>> 16) & 0xff)];
+        c1 = (c1 ^ S[(d1 >>> 8) & 0xff]) + S[256 + ((d1 >>> 16) & 0xff)];
+        b0 += S[d0 >>> 24];
+        b1 += S[d1 >>> 24];
+        a0 ^= S[256 + (d0 & 0xff)];
+        a1 ^= S[256 + (d1 & 0xff)];
+        d0 += a0;
+        d1 += a1;
+        c0 = Integer.rotateRight(c0, 24);
+        c1 = Integer.rotateRight(c1, 24);
+        b0 = (b0 ^ S[(c0 >>> 8) & 0xff]) + S[256 + ((c0 >>> 16) & 0xff)];
+        b1 = (b1 ^ S[(c1 >>> 8) & 0xff]) + S[256 + ((c1 >>> 16) & 0xff)];
+        a0 += S[c0 >>> 24];
+        a1 += S[c1 >>> 24];
+        d0 ^= S[256 + (c0 & 0xff)];
+        d1 ^= S[256 + (c1 & 0xff)];
+        c0 += b0;
+        c1 += b1;
+        b0 = Integer.rotateRight(b0, 24);
+        b1 = Integer.rotateRight(b1, 24);
+        a0 = (a0 ^ S[(b0 >>> 8) & 0xff]) + S[256 + ((b0 >>> 16) & 0xff)];
+        a1 = (a1 ^ S[(b1 >>> 8) & 0xff]) + S[256 + ((b1 >>> 16) & 0xff)];
+        d0 += S[b0 >>> 24];
+        d1 += S[b1 >>> 24];
+        c0 ^= S[256 + (b0 & 0xff)];
+        c1 ^= S[256 + (b1 & 0xff)];
+        a0 = Integer.rotateRight(a0, 24);
+        a1 = Integer.rotateRight(a1, 24);
+        d0 = (d0 ^ S[(a0 >>> 8) & 0xff]) + S[256 + ((a0 >>> 16) & 0xff)];
+        d1 = (d1 ^ S[(a1 >>> 8) & 0xff]) + S[256 + ((a1 >>> 16) & 0xff)];
+        c0 += S[a0 >>> 24];
+        c1 += S[a1 >>> 24];
+        b0 ^= S[256 + (a0 & 0xff)];
+        b1 ^= S[256 + (a1 & 0xff)];
+
+        // обращение ядра
+        t0 = d0;
+        t1 = d1;
+        d0 = Integer.rotateRight(t0, 13);
+        d1 = Integer.rotateRight(t1, 13);
+        r0 = Integer.rotateLeft(t0 * k35, 10);
+        r1 = Integer.rotateLeft(t1 * k35, 10);
+        m0 = Integer.rotateLeft(d0 + k34, r0 >>> 5);
+        m1 = Integer.rotateLeft(d1 + k34, r1 >>> 5);
+        l0 = Integer.rotateLeft(S[m0 & 0x1ff] ^ (r0 >>> 5) ^ r0, r0);
+        l1 = Integer.rotateLeft(S[m1 & 0x1ff] ^ (r1 >>> 5) ^ r1, r1);
+        a0 ^= r0; b0 -= m0; c0 -= l0;
+        a1 ^= r1; b1 -= m1; c1 -= l1;
+        t0 = c0;
+        t1 = c1;
+        c0 = Integer.rotateRight(t0, 13);
+        c1 = Integer.rotateRight(t1, 13);
+        r0 = Integer.rotateLeft(t0 * k33, 10);
+        r1 = Integer.rotateLeft(t1 * k33, 10);
+        m0 = Integer.rotateLeft(c0 + k32, r0 >>> 5);
+        m1 = Integer.rotateLeft(c1 + k32, r1 >>> 5);
+        l0 = Integer.rotateLeft(S[m0 & 0x1ff] ^ (r0 >>> 5) ^ r0, r0);
+        l1 = Integer.rotateLeft(S[m1 & 0x1ff] ^ (r1 >>> 5) ^ r1, r1);
+        d0 ^= r0; a0 -= m0; b0 -= l0;
+        d1 ^= r1; a1 -= m1; b1 -= l1;
+        t0 = b0;
+        t1 = b1;
+        b0 = Integer.rotateRight(t0, 13);
+        b1 = Integer.rotateRight(t1, 13);
+        r0 = Integer.rotateLeft(t0 * k31, 10);
+        r1 = Integer.rotateLeft(t1 * k31, 10);
+        m0 = Integer.rotateLeft(b0 + k30, r0 >>> 5);
+        m1 = Integer.rotateLeft(b1 + k30, r1 >>> 5);
+        l0 = Integer.rotateLeft(S[m0 & 0x1ff] ^ (r0 >>> 5) ^ r0, r0);
+        l1 = Integer.rotateLeft(S[m1 & 0x1ff] ^ (r1 >>> 5) ^ r1, r1);
+        c0 ^= r0; d0 -= m0; a0 -= l0;
+        c1 ^= r1; d1 -= m1; a1 -= l1;
+        t0 = a0;
+        t1 = a1;
+        a0 = Integer.rotateRight(t0, 13);
+        a1 = Integer.rotateRight(t1, 13);
+        r0 = Integer.rotateLeft(t0 * k29, 10);
+        r1 = Integer.rotateLeft(t1 * k29, 10);
+        m0 = Integer.rotateLeft(a0 + k28, r0 >>> 5);
+        m1 = Integer.rotateLeft(a1 + k28, r1 >>> 5);
+        l0 = Integer.rotateLeft(S[m0 & 0x1ff] ^ (r0 >>> 5) ^ r0, r0);
+        l1 = Integer.rotateLeft(S[m1 & 0x1ff] ^ (r1 >>> 5) ^ r1, r1);
+        b0 ^= r0; c0 -= m0; d0 -= l0;
+        b1 ^= r1; c1 -= m1; d1 -= l1;
+        t0 = d0;
+        t1 = d1;
+        d0 = Integer.rotateRight(t0, 13);
+        d1 = Integer.rotateRight(t1, 13);
+        r0 = Integer.rotateLeft(t0 * k27, 10);
+        r1 = Integer.rotateLeft(t1 * k27, 10);
+        m0 = Integer.rotateLeft(d0 + k26, r0 >>> 5);
+        m1 = Integer.rotateLeft(d1 + k26, r1 >>> 5);
+        l0 = Integer.rotateLeft(S[m0 & 0x1ff] ^ (r0 >>> 5) ^ r0, r0);
+        l1 = Integer.rotateLeft(S[m1 & 0x1ff] ^ (r1 >>> 5) ^ r1, r1);
+        a0 ^= r0; b0 -= m0; c0 -= l0;
+        a1 ^= r1; b1 -= m1; c1 -= l1;
+        t0 = c0;
+        t1 = c1;
+        c0 = Integer.rotateRight(t0, 13);
+        c1 = Integer.rotateRight(t1, 13);
+        r0 = Integer.rotateLeft(t0 * k25, 10);
+        r1 = Integer.rotateLeft(t1 * k25, 10);
+        m0 = Integer.rotateLeft(c0 + k24, r0 >>> 5);
+        m1 = Integer.rotateLeft(c1 + k24, r1 >>> 5);
+        l0 = Integer.rotateLeft(S[m0 & 0x1ff] ^ (r0 >>> 5) ^ r0, r0);
+        l1 = Integer.rotateLeft(S[m1 & 0x1ff] ^ (r1 >>> 5) ^ r1, r1);
+        d0 ^= r0; a0 -= m0; b0 -= l0;
+        d1 ^= r1; a1 -= m1; b1 -= l1;
+        t0 = b0;
+        t1 = b1;
+        b0 = Integer.rotateRight(t0, 13);
+        b1 = Integer.rotateRight(t1, 13);
+        r0 = Integer.rotateLeft(t0 * k23, 10);
+        r1 = Integer.rotateLeft(t1 * k23, 10);
+        m0 = Integer.rotateLeft(b0 + k22, r0 >>> 5);
+        m1 = Integer.rotateLeft(b1 + k22, r1 >>> 5);
+        l0 = Integer.rotateLeft(S[m0 & 0x1ff] ^ (r0 >>> 5) ^ r0, r0);
+        l1 = Integer.rotateLeft(S[m1 & 0x1ff] ^ (r1 >>> 5) ^ r1, r1);
+        c0 ^= r0; d0 -= m0; a0 -= l0;
+        c1 ^= r1; d1 -= m1; a1 -= l1;
+        t0 = a0;
+        t1 = a1;
+        a0 = Integer.rotateRight(t0, 13);
+        a1 = Integer.rotateRight(t1, 13);
+        r0 = Integer.rotateLeft(t0 * k21, 10);
+        r1 = Integer.rotateLeft(t1 * k21, 10);
+        m0 = Integer.rotateLeft(a0 + k20, r0 >>> 5);
+        m1 = Integer.rotateLeft(a1 + k20, r1 >>> 5);
+        l0 = Integer.rotateLeft(S[m0 & 0x1ff] ^ (r0 >>> 5) ^ r0, r0);
+        l1 = Integer.rotateLeft(S[m1 & 0x1ff] ^ (r1 >>> 5) ^ r1, r1);
+        b0 ^= r0; c0 -= m0; d0 -= l0;
+        b1 ^= r1; c1 -= m1; d1 -= l1;
+        t0 = d0;
+        t1 = d1;
+        d0 = Integer.rotateRight(t0, 13);
+        d1 = Integer.rotateRight(t1, 13);
+        r0 = Integer.rotateLeft(t0 * k19, 10);
+        r1 = Integer.rotateLeft(t1 * k19, 10);
+        m0 = Integer.rotateLeft(d0 + k18, r0 >>> 5);
+        m1 = Integer.rotateLeft(d1 + k18, r1 >>> 5);
+        l0 = Integer.rotateLeft(S[m0 & 0x1ff] ^ (r0 >>> 5) ^ r0, r0);
+        l1 = Integer.rotateLeft(S[m1 & 0x1ff] ^ (r1 >>> 5) ^ r1, r1);
+        a0 -= l0; b0 -= m0; c0 ^= r0;
+        a1 -= l1; b1 -= m1; c1 ^= r1;
+        t0 = c0;
+        t1 = c1;
+        c0 = Integer.rotateRight(t0, 13);
+        c1 = Integer.rotateRight(t1, 13);
+        r0 = Integer.rotateLeft(t0 * k17, 10);
+        r1 = Integer.rotateLeft(t1 * k17, 10);
+        m0 = Integer.rotateLeft(c0 + k16, r0 >>> 5);
+        m1 = Integer.rotateLeft(c1 + k16, r1 >>> 5);
+        l0 = Integer.rotateLeft(S[m0 & 0x1ff] ^ (r0 >>> 5) ^ r0, r0);
+        l1 = Integer.rotateLeft(S[m1 & 0x1ff] ^ (r1 >>> 5) ^ r1, r1);
+        d0 -= l0; a0 -= m0; b0 ^= r0;
+        d1 -= l1; a1 -= m1; b1 ^= r1;
+        t0 = b0;
+        t1 = b1;
+        b0 = Integer.rotateRight(t0, 13);
+        b1 = Integer.rotateRight(t1, 13);
+        r0 = Integer.rotateLeft(t0 * k15, 10);
+        r1 = Integer.rotateLeft(t1 * k15, 10);
+        m0 = Integer.rotateLeft(b0 + k14, r0 >>> 5);
+        m1 = Integer.rotateLeft(b1 + k14, r1 >>> 5);
+        l0 = Integer.rotateLeft(S[m0 & 0x1ff] ^ (r0 >>> 5) ^ r0, r0);
+        l1 = Integer.rotateLeft(S[m1 & 0x1ff] ^ (r1 >>> 5) ^ r1, r1);
+        c0 -= l0; d0 -= m0; a0 ^= r0;
+        c1 -= l1; d1 -= m1; a1 ^= r1;
+        t0 = a0;
+        t1 = a1;
+        a0 = Integer.rotateRight(t0, 13);
+        a1 = Integer.rotateRight(t1, 13);
+        r0 = Integer.rotateLeft(t0 * k13, 10);
+        r1 = Integer.rotateLeft(t1 * k13, 10);
+        m0 = Integer.rotateLeft(a0 + k12, r0 >>> 5);
+        m1 = Integer.rotateLeft(a1 + k12, r1 >>> 5);
+        l0 = Integer.rotateLeft(S[m0 & 0x1ff] ^ (r0 >>> 5) ^ r0, r0);
+        l1 = Integer.rotateLeft(S[m1 & 0x1ff] ^ (r1 >>> 5) ^ r1, r1);
+        b0 -= l0; c0 -= m0; d0 ^= r0;
+        b1 -= l1; c1 -= m1; d1 ^= r1;
+        t0 = d0;
+        t1 = d1;
+        d0 = Integer.rotateRight(t0, 13);
+        d1 = Integer.rotateRight(t1, 13);
+        r0 = Integer.rotateLeft(t0 * k11, 10);
+        r1 = Integer.rotateLeft(t1 * k11, 10);
+        m0 = Integer.rotateLeft(d0 + k10, r0 >>> 5);
+        m1 = Integer.rotateLeft(d1 + k10, r1 >>> 5);
+        l0 = Integer.rotateLeft(S[m0 & 0x1ff] ^ (r0 >>> 5) ^ r0, r0);
+        l1 = Integer.rotateLeft(S[m1 & 0x1ff] ^ (r1 >>> 5) ^ r1, r1);
+        a0 -= l0; b0 -= m0; c0 ^= r0;
+        a1 -= l1; b1 -= m1; c1 ^= r1;
+        t0 = c0;
+        t1 = c1;
+        c0 = Integer.rotateRight(t0, 13);
+        c1 = Integer.rotateRight(t1, 13);
+        r0 = Integer.rotateLeft(t0 * k9, 10);
+        r1 = Integer.rotateLeft(t1 * k9, 10);
+        m0 = Integer.rotateLeft(c0 + k8, r0 >>> 5);
+        m1 = Integer.rotateLeft(c1 + k8, r1 >>> 5);
+        l0 = Integer.rotateLeft(S[m0 & 0x1ff] ^ (r0 >>> 5) ^ r0, r0);
+        l1 = Integer.rotateLeft(S[m1 & 0x1ff] ^ (r1 >>> 5) ^ r1, r1);
+        d0 -= l0; a0 -= m0; b0 ^= r0;
+        d1 -= l1; a1 -= m1; b1 ^= r1;
+        t0 = b0;
+        t1 = b1;
+        b0 = Integer.rotateRight(t0, 13);
+        b1 = Integer.rotateRight(t1, 13);
+        r0 = Integer.rotateLeft(t0 * k7, 10);
+        r1 = Integer.rotateLeft(t1 * k7, 10);
+        m0 = Integer.rotateLeft(b0 + k6, r0 >>> 5);
+        m1 = Integer.rotateLeft(b1 + k6, r1 >>> 5);
+        l0 = Integer.rotateLeft(S[m0 & 0x1ff] ^ (r0 >>> 5) ^ r0, r0);
+        l1 = Integer.rotateLeft(S[m1 & 0x1ff] ^ (r1 >>> 5) ^ r1, r1);
+        c0 -= l0; d0 -= m0; a0 ^= r0;
+        c1 -= l1; d1 -= m1; a1 ^= r1;
+        t0 = a0;
+        t1 = a1;
+        a0 = Integer.rotateRight(t0, 13);
+        a1 = Integer.rotateRight(t1, 13);
+        r0 = Integer.rotateLeft(t0 * k5, 10);
+        r1 = Integer.rotateLeft(t1 * k5, 10);
+        m0 = Integer.rotateLeft(a0 + k4, r0 >>> 5);
+        m1 = Integer.rotateLeft(a1 + k4, r1 >>> 5);
+        l0 = Integer.rotateLeft(S[m0 & 0x1ff] ^ (r0 >>> 5) ^ r0, r0);
+        l1 = Integer.rotateLeft(S[m1 & 0x1ff] ^ (r1 >>> 5) ^ r1, r1);
+        b0 -= l0; c0 -= m0; d0 ^= r0;
+        b1 -= l1; c1 -= m1; d1 ^= r1;
+
+        // обращение прямого перемешивания
+        d0 = Integer.rotateLeft(d0, 24);
+        d1 = Integer.rotateLeft(d1, 24);
+        c0 ^= S[256 + (d0 >>> 24)];
+        c1 ^= S[256 + (d1 >>> 24)];
+        b0 -= S[(d0 >>> 16) & 0xff];
+        b1 -= S[(d1 >>> 16) & 0xff];
+        a0 = (a0 - S[256 + ((d0 >>> 8) & 0xff)]) ^ S[d0 & 0xff];
+        a1 = (a1 - S[256 + ((d1 >>> 8) & 0xff)]) ^ S[d1 & 0xff];
+        c0 = Integer.rotateLeft(c0, 24);
+        c1 = Integer.rotateLeft(c1, 24);
+        b0 ^= S[256 + (c0 >>> 24)];
+        b1 ^= S[256 + (c1 >>> 24)];
+        a0 -= S[(c0 >>> 16) & 0xff];
+        a1 -= S[(c1 >>> 16) & 0xff];
+        d0 = (d0 - S[256 + ((c0 >>> 8) & 0xff)]) ^ S[c0 & 0xff];
+        d1 = (d1 - S[256 + ((c1 >>> 8) & 0xff)]) ^ S[c1 & 0xff];
+        b0 -= c0;
+        b1 -= c1;
+        b0 = Integer.rotateLeft(b0, 24);
+        b1 = Integer.rotateLeft(b1, 24);
+        a0 ^= S[256 + (b0 >>> 24)];
+        a1 ^= S[256 + (b1 >>> 24)];
+        d0 -= S[(b0 >>> 16) & 0xff];
+        d1 -= S[(b1 >>> 16) & 0xff];
+        c0 = (c0 - S[256 + ((b0 >>> 8) & 0xff)]) ^ S[b0 & 0xff];
+        c1 = (c1 - S[256 + ((b1 >>> 8) & 0xff)]) ^ S[b1 & 0xff];
+        a0 -= d0;
+        a1 -= d1;
+        a0 = Integer.rotateLeft(a0, 24);
+        a1 = Integer.rotateLeft(a1, 24);
+        d0 ^= S[256 + (a0 >>> 24)];
+        d1 ^= S[256 + (a1 >>> 24)];
+        c0 -= S[(a0 >>> 16) & 0xff];
+        c1 -= S[(a1 >>> 16) & 0xff];
+        b0 = (b0 - S[256 + ((a0 >>> 8) & 0xff)]) ^ S[a0 & 0xff];
+        b1 = (b1 - S[256 + ((a1 >>> 8) & 0xff)]) ^ S[a1 & 0xff];
+        d0 = Integer.rotateLeft(d0, 24);
+        d1 = Integer.rotateLeft(d1, 24);
+        c0 ^= S[256 + (d0 >>> 24)];
+        c1 ^= S[256 + (d1 >>> 24)];
+        b0 -= S[(d0 >>> 16) & 0xff];
+        b1 -= S[(d1 >>> 16) & 0xff];
+        a0 = (a0 - S[256 + ((d0 >>> 8) & 0xff)]) ^ S[d0 & 0xff];
+        a1 = (a1 - S[256 + ((d1 >>> 8) & 0xff)]) ^ S[d1 & 0xff];
+        c0 = Integer.rotateLeft(c0, 24);
+        c1 = Integer.rotateLeft(c1, 24);
+        b0 ^= S[256 + (c0 >>> 24)];
+        b1 ^= S[256 + (c1 >>> 24)];
+        a0 -= S[(c0 >>> 16) & 0xff];
+        a1 -= S[(c1 >>> 16) & 0xff];
+        d0 = (d0 - S[256 + ((c0 >>> 8) & 0xff)]) ^ S[c0 & 0xff];
+        d1 = (d1 - S[256 + ((c1 >>> 8) & 0xff)]) ^ S[c1 & 0xff];
+        b0 -= c0;
+        b1 -= c1;
+        b0 = Integer.rotateLeft(b0, 24);
+        b1 = Integer.rotateLeft(b1, 24);
+        a0 ^= S[256 + (b0 >>> 24)];
+        a1 ^= S[256 + (b1 >>> 24)];
+        d0 -= S[(b0 >>> 16) & 0xff];
+        d1 -= S[(b1 >>> 16) & 0xff];
+        c0 = (c0 - S[256 + ((b0 >>> 8) & 0xff)]) ^ S[b0 & 0xff];
+        c1 = (c1 - S[256 + ((b1 >>> 8) & 0xff)]) ^ S[b1 & 0xff];
+        a0 -= d0;
+        a1 -= d1;
+        a0 = Integer.rotateLeft(a0, 24);
+        a1 = Integer.rotateLeft(a1, 24);
+        d0 ^= S[256 + (a0 >>> 24)];
+        d1 ^= S[256 + (a1 >>> 24)];
+        c0 -= S[(a0 >>> 16) & 0xff];
+        c1 -= S[(a1 >>> 16) & 0xff];
+        b0 = (b0 - S[256 + ((a0 >>> 8) & 0xff)]) ^ S[a0 & 0xff];
+        b1 = (b1 - S[256 + ((a1 >>> 8) & 0xff)]) ^ S[a1 & 0xff];
+
+        intToLe(a0 - k0, out, outOff);
+        intToLe(a1 - k0, out, outOff + 16);
+        intToLe(b0 - k1, out, outOff + 4);
+        intToLe(b1 - k1, out, outOff + 20);
+        intToLe(c0 - k2, out, outOff + 8);
+        intToLe(c1 - k2, out, outOff + 24);
+        intToLe(d0 - k3, out, outOff + 12);
+        intToLe(d1 - k3, out, outOff + 28);
+    }
+}
@@ -14,17 +14,43 @@ public class Magenta implements Algorithm {
     public void setKey(byte[] key) {
         if (key == null || (key.length != 16 && key.length != 24 && key.length != 32))
             throw new IllegalArgumentException("Key length must be 16, 24 or 32 bytes");
-        this.key = key;
+        if (this.key != null) throw new IllegalStateException("Key already set");
+        this.key = key.clone();
     }
 
     @Override
     public byte[] encryptBlock(byte[] block) {
         if (block.length != 16)
             throw new IllegalArgumentException("Block must be 16 bytes");
+        byte[] out = new byte[16];
+        encryptBlock(block, 0, out, 0);
+        return out;
+    }
 
+    @Override
+    public byte[] decryptBlock(byte[] block) {
+        if (block.length != 16)
+            throw new IllegalArgumentException("Block must be 16 bytes");
+        byte[] out = new byte[16];
+        decryptBlock(block, 0, out, 0);
+        return out;
+    }
+
+    @Override
+    public void encryptBlock(byte[] in, int inOff, byte[] out, int outOff) {
+        feistel(in, inOff, inOff + 8, out, outOff, outOff + 8);
+    }
+
+    // D(x) = V(E(V(x))), V меняет половины местами
+    @Override
+    public void decryptBlock(byte[] in, int inOff, byte[] out, int outOff) {
+        feistel(in, inOff + 8, inOff, out, outOff + 8, outOff);
+    }
+
+    private void feistel(byte[] in, int lOff, int rOff, byte[] out, int lOut, int rOut) {
         byte[][] roundKeys = generateRoundKeys(key);
-        byte[] L = Arrays.copyOfRange(block, 0, 8);
-        byte[] R = Arrays.copyOfRange(block, 8, 16);
+        byte[] L = Arrays.copyOfRange(in, lOff, lOff + 8);
+        byte[] R = Arrays.copyOfRange(in, rOff, rOff + 8);
 
         for (byte[] rk : roundKeys) {
             byte[] f = e(concat(R, rk), 3);
@@ -33,16 +59,8 @@ public class Magenta implements Algorithm {
             R = newL;
         }
 
-        return concat(L, R);
-    }
-
-    @Override
-    public byte[] decryptBlock(byte[] block) {
-        return v(encryptBlock(v(block)));
-    }
-
-    private static byte[] v(byte[] x) {
-        return concat(Arrays.copyOfRange(x, 8, 16), Arrays.copyOfRange(x, 0, 8));
+        System.arraycopy(L, 0, out, lOut, 8);
+        System.arraycopy(R, 0, out, rOut, 8);
     }
 
     private static byte[] xor(byte[] a, byte[] b) {
@@ -0,0 +1,134 @@
+package com.project.crypto.ciphers;
+
+// Та же Magenta, что и в Magenta, но раундовые ключи разворачиваются один раз в setKey,
+// а половины блока и 16-байтное состояние F-функции живут в long-ах: без аллокаций на блок.
+// Байт 0 половины - старший байт long.
+public class MagentaFast implements Algorithm {
+
+    private static final int MODULE = 0x165;
+    static final int[] S = initS();
+
+    private long[] roundKeys;
+
+    @Override
+    public int getBlockSize() { return 16; }
+
+    @Override
+    public void setKey(byte[] key) {
+        if (key == null || (key.length != 16 && key.length != 24 && key.length != 32))
+            throw new IllegalArgumentException("Key length must be 16, 24 or 32 bytes");
+        if (roundKeys != null) throw new IllegalStateException("Key already set");
+
+        long k1 = beToLong(key, 0);
+        long k2 = beToLong(key, 8);
+        if (key.length == 16) {
+            roundKeys = new long[]{k1, k1, k2, k2, k1, k1};
+        } else if (key.length == 24) {
+            long k3 = beToLong(key, 16);
+            roundKeys = new long[]{k1, k2, k3, k3, k2, k1};
+        } else {
+            long k3 = beToLong(key, 16);
+            long k4 = beToLong(key, 24);
+            roundKeys = new long[]{k1, k2, k3, k4, k4, k3, k2, k1};
+        }
+    }
+
+    @Override
+    public void encryptBlock(byte[] in, int inOff, byte[] out, int outOff) {
+        feistel(in, inOff, inOff + 8, out, outOff, outOff + 8);
+    }
+
+    // D(x) = V(E(V(x))), V меняет половины местами
+    @Override
+    public void decryptBlock(byte[] in, int inOff, byte[] out, int outOff) {
+        feistel(in, inOff + 8, inOff, out, outOff + 8, outOff);
+    }
+
+    private void feistel(byte[] in, int lOff, int rOff, byte[] out, int lOut, int rOut) {
+        long[] rk = roundKeys;
+        long L = beToLong(in, lOff);
+        long R = beToLong(in, rOff);
+
+        for (long k : rk) {
+            long t = L ^ e(R, k);
+            L = R;
+            R = t;
+        }
+
+        longToBe(L, out, lOut);
+        longToBe(R, out, rOut);
+    }
+
+    // E^(3)(x || k): три итерации C, результат - чётные байты
+    protected long e(long x, long k) {
+        long hi = x, lo = k;
+        for (int r = 0; r < 3; r++) {
+            if (r > 0) {
+                long ce = even(hi, lo);
+                long co = odd(hi, lo);
+                hi = x ^ ce;
+                lo = k ^ co;
+            }
+            // T = PI^4
+            for (int p = 0; p < 4; p++) {
+                long nh = 0, nl = 0;
+                for (int i = 0; i < 4; i++) {
+                    int sh = 56 - 8 * i;
+                    int ps = 48 - 16 * i;
+                    int xh = (int) (hi >>> sh) & 0xff, yh = (int) (lo >>> sh) & 0xff;
+                    int xl = (int) (hi >>> (sh - 32)) & 0xff, yl = (int) (lo >>> (sh - 32)) & 0xff;
+                    nh |= (long) ((a(xh, yh) << 8) | a(yh, xh)) << ps;
+                    nl |= (long) ((a(xl, yl) << 8) | a(yl, xl)) << ps;
+                }
+                hi = nh;
+                lo = nl;
+            }
+        }
+        return even(hi, lo);
+    }
+
+    private static int a(int x, int y) { return S[x ^ S[y]]; }
+
+    static long even(long hi, long lo) {
+        long r = 0;
+        for (int j = 0; j < 4; j++) {
+            r |= ((hi >>> (56 - 16 * j)) & 0xff) << (56 - 8 * j);
+            r |= ((lo >>> (56 - 16 * j)) & 0xff) << (24 - 8 * j);
+        }
+        return r;
+    }
+
+    static long odd(long hi, long lo) {
+        long r = 0;
+        for (int j = 0; j < 4; j++) {
+            r |= ((hi >>> (48 - 16 * j)) & 0xff) << (56 - 8 * j);
+            r |= ((lo >>> (48 - 16 * j)) & 0xff) << (24 - 8 * j);
+        }
+        return r;
+    }
+
+    private static int[] initS() {
+        int[] s = new int[256];
+        s[0] = 1;
+        for (int i = 1; i < 255; i++) {
+            int v = s[i - 1] << 1;
+            if ((v & 0x100) != 0) v ^= MODULE;
+            s[i] = v;
+        }
+        s[255] = 0;
+        return s;
+    }
+
+    private static long beToLong(byte[] b, int off) {
+        long v = 0;
+        for (int i = 0; i < 8; i++) v = (v << 8) | (b[off + i] & 0xff);
+        return v;
+    }
+
+    private static void longToBe(long v, byte[] out, int off) {
+        for (int i = 7; i >= 0; i--) {
+            out[off + i] = (byte) v;
+            v >>>= 8;
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package com.project.crypto.factories;
+
+import com.project.crypto.modes.CipherMode;
+import com.project.crypto.modes.ModeContext;
+import com.project.crypto.padding.Padding;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+// Потоковое шифрование/расшифрование через CryptoSuite: update можно вызывать
+// сколько угодно раз, неполный блок копится во внутреннем буфере, паддинг
+// добавляется/снимается в doFinal. Результат совпадает с CryptoSuite.encrypt/decrypt.
+// Экземпляр не потокобезопасен; после doFinal нужен новый init. Буферы in и out
+// в update не должны перекрываться.
+public final class CipherContext {
+    private static final int CHUNK = 16384;
+
+    private final CipherMode mode;
+    private final Padding padding;
+    private final int blockSize;
+
+    private final byte[] buffer;
+    private int buffered;
+    private boolean encrypting;
+    private ModeContext ctx;
+
+    CipherContext(CipherMode mode, Padding padding, int blockSize) {
+        this.mode = mode;
+        this.padding = padding;
+        this.blockSize = blockSize;
+        this.buffer = new byte[blockSize];
+    }
+
+    public CipherContext init(boolean encrypt, byte[] ivOrNonce) {
+        this.encrypting = encrypt;
+        this.ctx = mode.newContext(encrypt, ivOrNonce);
+        this.buffered = 0;
+        return this;
+    }
+
+    // максимальное число байт, которое вернут update(len) + doFinal
+    public int getOutputSize(int inputLen) {
+        int total = buffered + inputLen;
+        return (encrypting && padding != null) ? padding.paddedLength(total, blockSize) : total;
+    }
+
+    public int update(byte[] in, int inOff, int len, byte[] out, int outOff) {
+        checkInit();
+        int process = updateSize(len);
+
+        int written = 0;
+        if (process > 0) {
+            if (buffered > 0) {
+                int fill = blockSize - buffered;
+                System.arraycopy(in, inOff, buffer, buffered, fill);
+                ctx.processBlocks(buffer, 0, out, outOff, 1);
+                inOff += fill;
+                len -= fill;
+                buffered = 0;
+                written = blockSize;
+            }
+            int blocks = (process - written) / blockSize;
+            if (blocks > 0) {
+                ctx.processBlocks(in, inOff, out, outOff + written, blocks);
+                inOff += blocks * blockSize;
+                len -= blocks * blockSize;
+                written += blocks * blockSize;
+            }
+        }
+        System.arraycopy(in, inOff, buffer, buffered, len);
+        buffered += len;
+        return written;
+    }
+
+    public int doFinal(byte[] out, int outOff) {
+        checkInit();
+        try {
+            if (padding == null) {
+                if (buffered > 0) ctx.processTail(buffer, 0, out, outOff, buffered);
+                return buffered;
+            }
+
+            if (encrypting) {
+                System.arraycopy(buffer, 0, out, outOff, buffered);
+                int n = padding.padInPlace(out, outOff, buffered, blockSize);
+                ctx.processBlocks(out, outOff, out, outOff, n / blockSize);
+                return n;
+            }
+
+            if (buffered != blockSize)
+                throw new IllegalArgumentException("Ciphertext length must be a positive multiple of block size");
+            // паддинг целиком в последнем блоке (Zeros тоже снимается только в нём,
+            // как в CryptoSuite.decrypt), поэтому больше одного блока не придерживается
+            ctx.processBlocks(buffer, 0, buffer, 0, 1);
+            int n = padding.unpaddedLength(buffer, 0, blockSize, blockSize);
+            System.arraycopy(buffer, 0, out, outOff, n);
+            return n;
+        } finally {
+            buffered = 0;
+            ctx = null;
+        }
+    }
+
+    // сколько байт update(len) обработает прямо сейчас
+    private int updateSize(int len) {
+        int total = buffered + len;
+        // при расшифровании с паддингом последний блок придерживается до doFinal
+        int keep = total % blockSize;
+        if (keep == 0 && !encrypting && padding != null && total > 0) keep = blockSize;
+        return total - keep;
+    }
+
+    // ByteBuffer-вариант: heap-буферы обрабатываются напрямую через массивы,
+    // direct - кусками по CHUNK, без копирования всего src в кучу
+    public int update(ByteBuffer src, ByteBuffer dst) {
+        checkInit();
+        int need = updateSize(src.remaining());
+        if (dst.remaining() < need)
+            throw new IllegalArgumentException("Output buffer too small: " + dst.remaining() + " < " + need);
+
+        if (src.hasArray() && dst.hasArray()) {
+            int n = update(src.array(), src.arrayOffset() + src.position(), src.remaining(),
+                    dst.array(), dst.arrayOffset() + dst.position());
+            src.position(src.limit());
+            dst.position(dst.position() + n);
+            return n;
+        }
+
+        byte[] in = src.hasArray() ? null : new byte[Math.min(src.remaining(), CHUNK)];
+        byte[] out = new byte[CHUNK + blockSize];
+        int written = 0;
+        while (src.hasRemaining()) {
+            int len = Math.min(src.remaining(), CHUNK);
+            int n;
+            if (in == null) {
+                n = update(src.array(), src.arrayOffset() + src.position(), len, out, 0);
+                src.position(src.position() + len);
+            } else {
+                src.get(in, 0, len);
+                n = update(in, 0, len, out, 0);
+            }
+            dst.put(out, 0, n);
+            written += n;
+        }
+        return written;
+    }
+
+    public int doFinal(ByteBuffer dst) {
+        checkInit();
+        int need = getOutputSize(0);
+        if (dst.remaining() < need)
+            throw new IllegalArgumentException("Output buffer too small: " + dst.remaining() + " < " + need);
+
+        if (dst.hasArray()) {
+            int n = doFinal(dst.array(), dst.arrayOffset() + dst.position());
+            dst.position(dst.position() + n);
+            return n;
+        }
+        byte[] out = new byte[need];
+        int n = doFinal(out, 0);
+        dst.put(out, 0, n);
+        return n;
+    }
+
+    public byte[] update(byte[] in) {
+        byte[] out = new byte[getOutputSize(in.length)];
+        int n = update(in, 0, in.length, out, 0);
+        return (n == out.length) ? out : Arrays.copyOf(out, n);
+    }
+
+    public byte[] doFinal() {
+        byte[] out = new byte[getOutputSize(0)];
+        int n = doFinal(out, 0);
+        return (n == out.length) ? out : Arrays.copyOf(out, n);
+    }
+
+    private void checkInit() {
+        if (ctx == null)
+            throw new IllegalStateException("CipherContext is not initialized");
+    }
+}
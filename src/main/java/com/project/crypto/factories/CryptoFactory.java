@@ -1,11 +1,11 @@
 package com.project.crypto.factories;
 
 import com.project.crypto.ciphers.Algorithm;
-import com.project.crypto.ciphers.MARS;
-import com.project.crypto.ciphers.Magenta;
 import com.project.crypto.modes.*;
 import com.project.crypto.padding.*;
 
+import java.util.function.Supplier;
+
 public class CryptoFactory {
     public final AlgorithmType algorithm;
     public final ModeType mode;
@@ -22,6 +22,7 @@ public class CryptoFactory {
         private ModeType mode;
         private PaddingType padding;
         private byte[] key;
+        private Supplier<? extends Algorithm> engine;
 
         public Builder algorithm(AlgorithmType a) {
             this.algorithm = a;
@@ -40,16 +41,19 @@ public class CryptoFactory {
             return this;
         }
 
+        // конкретная реализация алгоритма вместо реализации по умолчанию (например, Magenta/MagentaFast)
+        public Builder engine(Supplier<? extends Algorithm> e) {
+            this.engine = e;
+            return this;
+        }
+
         public CryptoFactory build() {
             return new CryptoFactory(this);
         }
 
         public CryptoSuite buildSuite() {
 
-            Algorithm alg = switch (algorithm) {
-                case MARS -> new MARS();
-                case MAGENTA -> new Magenta();
-            };
+            Algorithm alg = (engine != null) ? engine.get() : EngineRegistry.getDefault().create(algorithm);
 
             alg.setKey(key);
 
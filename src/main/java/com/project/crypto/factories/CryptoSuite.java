@@ -4,7 +4,18 @@ import com.project.crypto.ciphers.Algorithm;
 import com.project.crypto.modes.CipherMode;
 import com.project.crypto.padding.Padding;
 
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+// Неизменяемый после сборки и потокобезопасный: алгоритм получает ключ в CryptoFactory
+// до конструктора, все поля final (безопасная публикация), режимы и паддинги без
+// состояния, а временные буферы берутся из ThreadLocal. Один экземпляр можно держать
+// на комнату и шифровать из любых рабочих потоков без повторного расписания ключа.
+// Не потокобезопасны только объекты, которые suite выдаёт наружу: CipherContext.
 public final class CryptoSuite {
+    private static final int SCRATCH_MAX = 16 * 1024;
+    private static final ThreadLocal<byte[]> SCRATCH = ThreadLocal.withInitial(() -> new byte[SCRATCH_MAX]);
+
     private final Algorithm algorithm;
     private final CipherMode mode;
     private final Padding padding;
@@ -17,14 +28,152 @@ public final class CryptoSuite {
         this.blockSize = algorithm.getBlockSize();
     }
 
+    // одна аллокация: открытый текст копируется в выходной буфер, паддинг
+    // дописывается за ним, и режим шифрует буфер на месте
     public byte[] encrypt(byte[] plaintext, byte[] ivOrNonce) {
-        byte[] data = (padding != null) ? padding.pad(plaintext, blockSize) : plaintext;
-        return mode.encrypt(data, ivOrNonce);
+        if (padding == null) return mode.encrypt(plaintext, ivOrNonce);
+
+        byte[] out = new byte[padding.paddedLength(plaintext.length, blockSize)];
+        System.arraycopy(plaintext, 0, out, 0, plaintext.length);
+        padding.padInPlace(out, 0, plaintext.length, blockSize);
+        mode.encrypt(out, 0, out, 0, out.length, ivOrNonce);
+        return out;
     }
 
+    // короткие сообщения расшифровываются в буфер потока, наружу копируется
+    // только открытый текст без паддинга
     public byte[] decrypt(byte[] ciphertext, byte[] ivOrNonce) {
-        byte[] data = mode.decrypt(ciphertext, ivOrNonce);
-        return (padding != null) ? padding.unpad(data) : data;
+        if (padding == null) return mode.decrypt(ciphertext, ivOrNonce);
+
+        boolean scratch = ciphertext.length <= SCRATCH_MAX;
+        byte[] data = scratch ? SCRATCH.get() : new byte[ciphertext.length];
+        try {
+            mode.decrypt(ciphertext, 0, data, 0, ciphertext.length, ivOrNonce);
+            int n = padding.unpaddedLength(data, 0, ciphertext.length, blockSize);
+            return Arrays.copyOf(data, n);
+        } finally {
+            // буфер потока живёт дольше вызова: открытый текст в нём не оставляем,
+            // в том числе при ошибке паддинга
+            if (scratch) Arrays.fill(data, 0, ciphertext.length, (byte) 0);
+        }
+    }
+
+    // Zero-copy вариант для NIO (FileChannel, MappedByteBuffer, direct-буферы):
+    // весь src.remaining() за один вызов, dst должен вмещать getOutputSize(...)
+    public int encrypt(ByteBuffer src, ByteBuffer dst, byte[] ivOrNonce) {
+        CipherContext ctx = newContext().init(true, ivOrNonce);
+        int n = ctx.update(src, dst);
+        return n + ctx.doFinal(dst);
+    }
+
+    public int decrypt(ByteBuffer src, ByteBuffer dst, byte[] ivOrNonce) {
+        CipherContext ctx = newContext().init(false, ivOrNonce);
+        int n = ctx.update(src, dst);
+        return n + ctx.doFinal(dst);
+    }
+
+    // верхняя граница длины результата encrypt/decrypt для входа длины inputLen
+    public int getOutputSize(boolean encrypt, int inputLen) {
+        return (encrypt && padding != null) ? padding.paddedLength(inputLen, blockSize) : inputLen;
+    }
+
+    // Пачка независимых сообщений за один проход: все шифротексты пишутся в одну арену,
+    // блоки разных сообщений чередуются там, где режим это позволяет (CBC, ECB, CTR).
+    // Результат сообщения i совпадает с encrypt(plaintexts[i], ivs[i]).
+    public MessageBatch encryptBatch(byte[][] plaintexts, byte[][] ivs) {
+        checkBatch(plaintexts, ivs);
+        int n = plaintexts.length;
+        int[] offsets = new int[n + 1];
+        int[] lengths = new int[n];
+        for (int i = 0; i < n; i++) {
+            int len = plaintexts[i].length;
+            lengths[i] = (padding != null) ? padding.paddedLength(len, blockSize) : len;
+            offsets[i + 1] = Math.addExact(offsets[i], lengths[i]);
+        }
+
+        byte[] arena = new byte[offsets[n]];
+        for (int i = 0; i < n; i++) {
+            System.arraycopy(plaintexts[i], 0, arena, offsets[i], plaintexts[i].length);
+            if (padding != null) padding.padInPlace(arena, offsets[i], plaintexts[i].length, blockSize);
+        }
+        mode.encryptBatch(arena, offsets, ivs);
+        return new MessageBatch(arena, offsets, lengths);
+    }
+
+    public MessageBatch decryptBatch(byte[][] ciphertexts, byte[][] ivs) {
+        checkBatch(ciphertexts, ivs);
+        int n = ciphertexts.length;
+        int[] offsets = new int[n + 1];
+        int[] lengths = new int[n];
+        for (int i = 0; i < n; i++) {
+            lengths[i] = ciphertexts[i].length;
+            offsets[i + 1] = Math.addExact(offsets[i], lengths[i]);
+        }
+        byte[] in = new byte[offsets[n]];
+        for (int i = 0; i < n; i++) System.arraycopy(ciphertexts[i], 0, in, offsets[i], lengths[i]);
+        return decryptBatch(new MessageBatch(in, offsets, lengths), ivs);
+    }
+
+    // расшифровать результат encryptBatch (или присланную арену) без копирования на входе
+    public MessageBatch decryptBatch(MessageBatch ciphertexts, byte[][] ivs) {
+        int n = ciphertexts.size();
+        if (ivs.length != n)
+            throw new IllegalArgumentException("Expected " + n + " IVs, got " + ivs.length);
+        checkIvs(ivs);
+        int[] offsets = ciphertexts.regions();
+        byte[] in = ciphertexts.arena();
+        byte[] out = new byte[in.length];
+        mode.decryptBatch(in, out, offsets, ivs);
+
+        int[] lengths = new int[n];
+        for (int i = 0; i < n; i++) {
+            int len = offsets[i + 1] - offsets[i];
+            lengths[i] = (padding != null) ? padding.unpaddedLength(out, offsets[i], len, blockSize) : len;
+        }
+        return new MessageBatch(out, offsets, lengths);
+    }
+
+    private void checkBatch(byte[][] messages, byte[][] ivs) {
+        if (messages.length != ivs.length)
+            throw new IllegalArgumentException("Expected " + messages.length + " IVs, got " + ivs.length);
+        checkIvs(ivs);
+    }
+
+    private void checkIvs(byte[][] ivs) {
+        for (byte[] iv : ivs)
+            if (iv == null || iv.length < blockSize)
+                throw new IllegalArgumentException("IV must be at least " + blockSize + " bytes");
+    }
+
+    // Частичное чтение (например, для отдачи куска большого медиафайла): байты
+    // [byteOffset, byteOffset + length) открытого текста, диапазон обрезается по его концу.
+    // Дёшево для mode.isSeekable(), а также для CBC/CFB.
+    public byte[] decryptRange(byte[] ciphertext, byte[] ivOrNonce, int byteOffset, int length) {
+        int lastStart = ciphertext.length - blockSize;
+        if (padding != null && lastStart >= 0 && (long) byteOffset + length > lastStart && byteOffset >= 0) {
+            // диапазон задевает последний блок: длину открытого текста знает только паддинг
+            byte[] last = mode.decryptRange(ciphertext, ivOrNonce, lastStart, blockSize);
+            int plainLength = lastStart + padding.unpaddedLength(last, 0, last.length, blockSize);
+            length = (int) Math.max(0, Math.min(length, (long) plainLength - byteOffset));
+        }
+        return mode.decryptRange(ciphertext, ivOrNonce, byteOffset, length);
+    }
+
+    public boolean isSeekable() {
+        return mode.isSeekable();
+    }
+
+    // потоковая обработка: suite.newContext().init(true, iv).update(...)... doFinal(...)
+    public CipherContext newContext() {
+        return new CipherContext(mode, padding, blockSize);
+    }
+
+    CipherMode getMode() {
+        return mode;
+    }
+
+    Padding getPadding() {
+        return padding;
     }
 
     public int getBlockSize() {
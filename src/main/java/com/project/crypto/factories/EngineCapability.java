@@ -0,0 +1,8 @@
+package com.project.crypto.factories;
+
+public enum EngineCapability {
+    // после setKey можно звать из многих потоков (годится для ParallelBlocks)
+    PARALLEL,
+    // encryptBlock/decryptBlock допускают in == out
+    IN_PLACE
+}
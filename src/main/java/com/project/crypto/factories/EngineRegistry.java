@@ -0,0 +1,230 @@
+package com.project.crypto.factories;
+
+import com.project.crypto.ciphers.*;
+import com.project.crypto.modes.EcbMode;
+import com.project.crypto.modes.ParallelBlocks;
+
+import java.security.SecureRandom;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Supplier;
+
+// Реализации (движки) алгоритмов: на один AlgorithmType может быть несколько движков,
+// первый зарегистрированный считается эталонным. CryptoFactory берёт выбранный движок.
+// calibrate() на старте прогоняет каждый движок, отбрасывает те, чей шифротекст не
+// совпал с эталоном, выбирает самый быстрый и подбирает выбранным движкам их порог
+// ParallelBlocks. calibrateEngines() делает только первое и пороги не трогает.
+// Выбранным может быть только движок с PARALLEL и IN_PLACE: CryptoSuite делит его
+// между потоками и шифрует на месте. Движок без PARALLEL никогда не распараллеливается.
+public final class EngineRegistry {
+
+    private static final EngineRegistry DEFAULT = withBuiltins();
+
+    public static final class Engine {
+        private final AlgorithmType algorithm;
+        private final String name;
+        private final Supplier<? extends Algorithm> supplier;
+        private final Set<EngineCapability> capabilities;
+        private volatile double nanosPerBlock = Double.NaN;
+        private volatile boolean verified;
+
+        Engine(AlgorithmType algorithm, String name, Supplier<? extends Algorithm> supplier,
+               Set<EngineCapability> capabilities) {
+            this.algorithm = algorithm;
+            this.name = name;
+            this.supplier = supplier;
+            this.capabilities = Collections.unmodifiableSet(EnumSet.copyOf(capabilities));
+        }
+
+        public AlgorithmType getAlgorithm() { return algorithm; }
+        public String getName() { return name; }
+        public Set<EngineCapability> getCapabilities() { return capabilities; }
+        // NaN, пока calibrate() не запускался
+        public double getNanosPerBlock() { return nanosPerBlock; }
+        public boolean isVerified() { return verified; }
+
+        boolean isShareable() {
+            return capabilities.containsAll(EnumSet.of(EngineCapability.PARALLEL, EngineCapability.IN_PLACE));
+        }
+        // с какой длины данных режимы распараллеливают этот движок
+        public int getParallelThreshold() { return ParallelBlocks.getThreshold(create().getClass()); }
+
+        public Algorithm create() {
+            return supplier.get();
+        }
+    }
+
+    private final Map<AlgorithmType, List<Engine>> engines = new ConcurrentHashMap<>();
+    private final Map<AlgorithmType, Engine> selected = new ConcurrentHashMap<>();
+
+    public static EngineRegistry getDefault() {
+        return DEFAULT;
+    }
+
+    // реестр со встроенными движками; по умолчанию выбраны MARSUnrolled и MagentaTable
+    public static EngineRegistry withBuiltins() {
+        EngineRegistry r = new EngineRegistry();
+        Set<EngineCapability> shared = EnumSet.allOf(EngineCapability.class);
+
+        r.register(AlgorithmType.MARS, "reference", MARS::new, shared);
+        r.register(AlgorithmType.MARS, "unrolled", MARSUnrolled::new, shared);
+        r.register(AlgorithmType.MAGENTA, "reference", Magenta::new, shared);
+        r.register(AlgorithmType.MAGENTA, "fast", MagentaFast::new, shared);
+        r.register(AlgorithmType.MAGENTA, "table", MagentaTable::new, shared);
+        r.select(AlgorithmType.MARS, "unrolled");
+        r.select(AlgorithmType.MAGENTA, "table");
+        return r;
+    }
+
+    public void register(AlgorithmType algorithm, String name, Supplier<? extends Algorithm> supplier,
+                         Set<EngineCapability> capabilities) {
+        Engine engine = new Engine(algorithm, name, supplier, capabilities);
+        List<Engine> list = engines.computeIfAbsent(algorithm, a -> new CopyOnWriteArrayList<>());
+        if (list.stream().anyMatch(e -> e.name.equals(name)))
+            throw new IllegalArgumentException("Engine already registered: " + algorithm + "/" + name);
+        list.add(engine);
+        if (!capabilities.contains(EngineCapability.PARALLEL))
+            ParallelBlocks.setThreshold(engine.create().getClass(), Integer.MAX_VALUE);
+        if (engine.isShareable()) selected.putIfAbsent(algorithm, engine);
+    }
+
+    public void select(AlgorithmType algorithm, String name) {
+        Engine engine = find(algorithm, name);
+        if (!engine.isShareable())
+            throw new IllegalArgumentException("Engine cannot back a shared suite: " + algorithm + "/" + name);
+        selected.put(algorithm, engine);
+    }
+
+    public Engine selected(AlgorithmType algorithm) {
+        Engine e = selected.get(algorithm);
+        if (e == null) throw new IllegalArgumentException("No engine registered for " + algorithm);
+        return e;
+    }
+
+    public List<Engine> engines(AlgorithmType algorithm) {
+        return List.copyOf(engines.getOrDefault(algorithm, List.of()));
+    }
+
+    public Engine find(AlgorithmType algorithm, String name) {
+        return engines(algorithm).stream()
+                .filter(e -> e.name.equals(name))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Unknown engine: " + algorithm + "/" + name));
+    }
+
+    public Algorithm create(AlgorithmType algorithm) {
+        return selected(algorithm).create();
+    }
+
+    // ---------- калибровка ----------
+
+    private static final int CHECK_BLOCKS = 64;
+    private static final int BENCH_BLOCKS = 256;
+    private static final long BENCH_NANOS = 20_000_000L;
+    // выбранный движок меняется, только если другой быстрее хотя бы на столько:
+    // разница меньше этой сравнима с шумом замера
+    private static final double SWITCH_MARGIN = 0.10;
+
+    public void calibrate() {
+        calibrateEngines();
+        if (ParallelBlocks.getParallelism() > 1)
+            for (Engine e : selected.values()) calibrateParallelThreshold(e);
+    }
+
+    public void calibrateEngines() {
+        for (AlgorithmType algorithm : engines.keySet()) calibrate(algorithm);
+    }
+
+    void calibrate(AlgorithmType algorithm) {
+        List<Engine> list = engines(algorithm);
+        if (list.isEmpty()) return;
+
+        SecureRandom rnd = new SecureRandom();
+        byte[] key = new byte[16];
+        rnd.nextBytes(key);
+        Algorithm reference = list.get(0).create();
+        reference.setKey(key);
+        int bs = reference.getBlockSize();
+        byte[] plain = new byte[CHECK_BLOCKS * bs];
+        rnd.nextBytes(plain);
+        byte[] expected = new byte[plain.length];
+        reference.encryptBlocks(plain, 0, expected, 0, CHECK_BLOCKS);
+
+        Engine best = null;
+        for (Engine e : list) {
+            Algorithm alg = e.create();
+            alg.setKey(key);
+            e.verified = matches(alg, plain, expected);
+            if (!e.verified) continue;
+            e.nanosPerBlock = measure(alg);
+            if (e.isShareable() && (best == null || e.nanosPerBlock < best.nanosPerBlock)) best = e;
+        }
+        if (best == null) return;
+        Engine current = selected.get(algorithm);
+        if (current != null && current.verified && current != best
+                && best.nanosPerBlock > current.nanosPerBlock * (1 - SWITCH_MARGIN)) return;
+        selected.put(algorithm, best);
+    }
+
+    private static boolean matches(Algorithm alg, byte[] plain, byte[] expected) {
+        byte[] ct = new byte[plain.length];
+        alg.encryptBlocks(plain, 0, ct, 0, CHECK_BLOCKS);
+        if (!Arrays.equals(ct, expected)) return false;
+        byte[] back = new byte[plain.length];
+        alg.decryptBlocks(ct, 0, back, 0, CHECK_BLOCKS);
+        return Arrays.equals(back, plain);
+    }
+
+    // лучшее время на блок среди нескольких прогонов, первый прогон - разогрев
+    private static double measure(Algorithm alg) {
+        byte[] buf = new byte[BENCH_BLOCKS * alg.getBlockSize()];
+        double best = Double.MAX_VALUE;
+        long deadline = System.nanoTime() + BENCH_NANOS;
+        int runs = 0;
+        while (runs < 3 || System.nanoTime() < deadline) {
+            long t0 = System.nanoTime();
+            alg.encryptBlocks(buf, 0, buf, 0, BENCH_BLOCKS);
+            long dt = System.nanoTime() - t0;
+            if (runs++ > 0) best = Math.min(best, (double) dt / BENCH_BLOCKS);
+            if (runs > 10_000) break;
+        }
+        return best;
+    }
+
+    // наименьший размер, с которого ECB на этом движке быстрее параллельно; если
+    // параллельно не быстрее и на 8 МБ, движок всегда работает в вызывающем потоке.
+    // Режимы добавляют к блоку шифра только XOR, поэтому порог общий для всех режимов
+    void calibrateParallelThreshold(Engine engine) {
+        Algorithm alg = engine.create();
+        alg.setKey(new byte[16]);
+        Class<? extends Algorithm> type = alg.getClass();
+        EcbMode ecb = new EcbMode(alg);
+        int threshold = Integer.MAX_VALUE;
+        try {
+            for (int size = 64 * 1024; size <= 8 << 20; size <<= 1) {
+                byte[] data = new byte[size];
+                ParallelBlocks.setThreshold(type, Integer.MAX_VALUE);
+                long serial = bestOf(ecb, data);
+                ParallelBlocks.setThreshold(type, 0);
+                long parallel = bestOf(ecb, data);
+                if (parallel < serial) {
+                    threshold = size;
+                    break;
+                }
+            }
+        } finally {
+            ParallelBlocks.setThreshold(type, threshold);
+        }
+    }
+
+    private static long bestOf(EcbMode ecb, byte[] data) {
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < 5; i++) {
+            long t0 = System.nanoTime();
+            ecb.encrypt(data, null);
+            best = Math.min(best, System.nanoTime() - t0);
+        }
+        return best;
+    }
+}
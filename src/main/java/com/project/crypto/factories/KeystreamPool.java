@@ -0,0 +1,129 @@
+package com.project.crypto.factories;
+
+import com.project.crypto.modes.KeystreamMode;
+import com.project.crypto.padding.Padding;
+
+import java.security.SecureRandom;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Заранее посчитанные пары (IV, keystream) для suite в режиме OFB/CTR: в фоне
+// держится до depth пар по maxBytes байт, и шифрование короткого сообщения
+// сводится к паддингу и XOR. Каждая пара выдаётся ровно один раз. Если пул пуст
+// или сообщение длиннее maxBytes, шифруем как обычно со свежим IV.
+public final class KeystreamPool {
+
+    public static final int DEFAULT_DEPTH = 16;
+    public static final int DEFAULT_MAX_BYTES = 4096;
+
+    // один фоновый поток на всё приложение, генерация дешёвая
+    private static final ExecutorService DEFAULT_EXECUTOR = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "keystream-prefetch");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public static final class Sealed {
+        public final byte[] iv;
+        public final byte[] ciphertext;
+
+        Sealed(byte[] iv, byte[] ciphertext) {
+            this.iv = iv;
+            this.ciphertext = ciphertext;
+        }
+    }
+
+    private static final class Entry {
+        final byte[] iv;
+        final byte[] keystream;
+
+        Entry(byte[] iv, byte[] keystream) {
+            this.iv = iv;
+            this.keystream = keystream;
+        }
+    }
+
+    private final CryptoSuite suite;
+    private final KeystreamMode mode;
+    private final SecureRandom rng;
+    private final Executor executor;
+    private final int maxBlocks;
+    private final BlockingQueue<Entry> ready;
+    private final AtomicBoolean refilling = new AtomicBoolean();
+
+    public KeystreamPool(CryptoSuite suite, SecureRandom rng) {
+        this(suite, rng, DEFAULT_DEPTH, DEFAULT_MAX_BYTES, DEFAULT_EXECUTOR);
+    }
+
+    public KeystreamPool(CryptoSuite suite, SecureRandom rng, int depth, int maxBytes, Executor executor) {
+        if (!supports(suite))
+            throw new IllegalArgumentException("Keystream prefetch needs OFB or CTR mode");
+        if (depth <= 0 || maxBytes <= 0)
+            throw new IllegalArgumentException("Depth and size must be positive");
+        this.suite = suite;
+        this.mode = (KeystreamMode) suite.getMode();
+        this.rng = rng;
+        this.executor = executor;
+        this.maxBlocks = (maxBytes + suite.getBlockSize() - 1) / suite.getBlockSize();
+        this.ready = new ArrayBlockingQueue<>(depth);
+        scheduleRefill();
+    }
+
+    public static boolean supports(CryptoSuite suite) {
+        return suite.getMode() instanceof KeystreamMode;
+    }
+
+    public Sealed encrypt(byte[] plaintext) {
+        int bs = suite.getBlockSize();
+        Padding padding = suite.getPadding();
+        int len = (padding != null) ? padding.paddedLength(plaintext.length, bs) : plaintext.length;
+
+        Entry e = (len <= maxBlocks * bs) ? ready.poll() : null;
+        scheduleRefill();
+        if (e == null) {
+            byte[] iv = newIv();
+            return new Sealed(iv, suite.encrypt(plaintext, iv));
+        }
+
+        byte[] ct = new byte[len];
+        System.arraycopy(plaintext, 0, ct, 0, plaintext.length);
+        if (padding != null) padding.padInPlace(ct, 0, plaintext.length, bs);
+        for (int i = 0; i < len; i++) ct[i] ^= e.keystream[i];
+        return new Sealed(e.iv, ct);
+    }
+
+    // сколько пар готово прямо сейчас
+    public int available() {
+        return ready.size();
+    }
+
+    private void scheduleRefill() {
+        if (ready.remainingCapacity() > 0 && refilling.compareAndSet(false, true))
+            executor.execute(this::refill);
+    }
+
+    private void refill() {
+        try {
+            while (ready.remainingCapacity() > 0) {
+                byte[] iv = newIv();
+                byte[] ks = new byte[maxBlocks * suite.getBlockSize()];
+                mode.keystream(iv, ks, 0, maxBlocks);
+                if (!ready.offer(new Entry(iv, ks))) break;
+            }
+        } finally {
+            refilling.set(false);
+        }
+        // encrypt мог забрать пару, пока флаг ещё стоял
+        if (ready.remainingCapacity() > 0) scheduleRefill();
+    }
+
+    private byte[] newIv() {
+        byte[] iv = new byte[suite.getBlockSize()];
+        rng.nextBytes(iv);
+        return iv;
+    }
+}
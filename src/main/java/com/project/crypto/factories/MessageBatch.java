@@ -0,0 +1,49 @@
+package com.project.crypto.factories;
+
+import java.util.Arrays;
+
+// Результат encryptBatch/decryptBatch: все сообщения лежат подряд в одном массиве arena,
+// сообщение i занимает [offset(i), offset(i) + length(i)).
+public final class MessageBatch {
+    private final byte[] arena;
+    private final int[] offsets;
+    private final int[] lengths;
+
+    MessageBatch(byte[] arena, int[] offsets, int[] lengths) {
+        this.arena = arena;
+        this.offsets = offsets;
+        this.lengths = lengths;
+    }
+
+    public int size() {
+        return lengths.length;
+    }
+
+    public byte[] arena() {
+        return arena;
+    }
+
+    public int offset(int i) {
+        return offsets[i];
+    }
+
+    public int length(int i) {
+        return lengths[i];
+    }
+
+    // копия сообщения i
+    public byte[] get(int i) {
+        return Arrays.copyOfRange(arena, offsets[i], offsets[i] + lengths[i]);
+    }
+
+    public byte[][] toArrays() {
+        byte[][] out = new byte[lengths.length][];
+        for (int i = 0; i < out.length; i++) out[i] = get(i);
+        return out;
+    }
+
+    // границы областей сообщений: offsets[i]..offsets[i + 1], длина size() + 1
+    int[] regions() {
+        return offsets;
+    }
+}
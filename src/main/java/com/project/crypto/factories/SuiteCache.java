@@ -0,0 +1,214 @@
+package com.project.crypto.factories;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+// Кэш готовых (уже с развёрнутым ключом) CryptoSuite: ключ кэша - область (id комнаты),
+// алгоритм, режим, паддинг и SHA-256 ключа; сам ключ не хранится. LRU на maxSize
+// записей, запись живёт не дольше ttl с момента сборки. Suite неизменяемый и
+// потокобезопасный (см. CryptoSuite), поэтому один экземпляр отдаётся всем.
+// invalidate(scope) обязательно вызывается при закрытии комнаты.
+public final class SuiteCache {
+
+    private static final class Key {
+        final String scope;
+        final AlgorithmType algorithm;
+        final ModeType mode;
+        final PaddingType padding;
+        final byte[] fingerprint;
+
+        Key(String scope, AlgorithmType algorithm, ModeType mode, PaddingType padding, byte[] fingerprint) {
+            this.scope = scope;
+            this.algorithm = algorithm;
+            this.mode = mode;
+            this.padding = padding;
+            this.fingerprint = fingerprint;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key k)) return false;
+            return scope.equals(k.scope) && algorithm == k.algorithm && mode == k.mode
+                    && padding == k.padding && MessageDigest.isEqual(fingerprint, k.fingerprint);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(scope, algorithm, mode, padding, Arrays.hashCode(fingerprint));
+        }
+    }
+
+    private static final class Entry {
+        final CryptoSuite suite;
+        final long createdAt;
+
+        Entry(CryptoSuite suite, long createdAt) {
+            this.suite = suite;
+            this.createdAt = createdAt;
+        }
+    }
+
+    // сборка, идущая вне блокировки; invalidate её отменяет, и результат не кэшируется
+    private static final class Pending {
+        final String scope;
+        boolean cancelled;
+
+        Pending(String scope) {
+            this.scope = scope;
+        }
+    }
+
+    // как собрать suite на промахе; в тестах подменяется, чтобы вклиниться в сборку
+    @FunctionalInterface
+    public interface SuiteFactory {
+        CryptoSuite build(AlgorithmType algorithm, ModeType mode, PaddingType padding, byte[] key);
+    }
+
+    private static final SuiteFactory DEFAULT_FACTORY = (algorithm, mode, padding, key) ->
+            new CryptoFactory.Builder().algorithm(algorithm).mode(mode).padding(padding).key(key).buildSuite();
+
+    private final int maxSize;
+    private final long ttlNanos;
+    private final LongSupplier clock;
+    private final SuiteFactory factory;
+    private final LinkedHashMap<Key, Entry> entries;
+    private final List<Pending> pending = new ArrayList<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public SuiteCache(int maxSize, Duration ttl) {
+        this(maxSize, ttl, System::nanoTime);
+    }
+
+    // clock - источник System.nanoTime(), подменяется в тестах
+    public SuiteCache(int maxSize, Duration ttl, LongSupplier clock) {
+        this(maxSize, ttl, clock, DEFAULT_FACTORY);
+    }
+
+    public SuiteCache(int maxSize, Duration ttl, LongSupplier clock, SuiteFactory factory) {
+        if (maxSize <= 0) throw new IllegalArgumentException("Cache size must be positive");
+        if (ttl.isNegative() || ttl.isZero()) throw new IllegalArgumentException("TTL must be positive");
+        this.maxSize = maxSize;
+        this.ttlNanos = ttl.toNanos();
+        this.clock = clock;
+        this.factory = factory;
+        // accessOrder = true: get переносит запись в конец, старейшая по использованию - первая
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                if (size() <= SuiteCache.this.maxSize) return false;
+                evictions.increment();
+                return true;
+            }
+        };
+    }
+
+    public CryptoSuite get(String scope, AlgorithmType algorithm, ModeType mode, PaddingType padding, byte[] key) {
+        Key k = new Key(Objects.requireNonNull(scope, "scope"), algorithm, mode, padding, fingerprint(key));
+        long now = clock.getAsLong();
+        Pending build = new Pending(k.scope);
+
+        synchronized (entries) {
+            Entry e = entries.get(k);
+            if (e != null && now - e.createdAt < ttlNanos) {
+                hits.increment();
+                return e.suite;
+            }
+            if (e != null) {
+                entries.remove(k);
+                evictions.increment();
+            }
+            pending.add(build);
+        }
+
+        // расписание ключа считается вне блокировки; при гонке двух потоков останется первый
+        misses.increment();
+        CryptoSuite built;
+        try {
+            built = factory.build(algorithm, mode, padding, key);
+        } catch (RuntimeException ex) {
+            synchronized (entries) {
+                pending.remove(build);
+            }
+            throw ex;
+        }
+        synchronized (entries) {
+            pending.remove(build);
+            // комнату закрыли, пока шёл расчёт: suite отдаём, но не кэшируем
+            if (build.cancelled) return built;
+            Entry existing = entries.get(k);
+            if (existing != null && now - existing.createdAt < ttlNanos) return existing.suite;
+            entries.put(k, new Entry(built, now));
+        }
+        return built;
+    }
+
+    // все записи комнаты; возвращает число удалённых
+    public int invalidate(String scope) {
+        int removed = 0;
+        synchronized (entries) {
+            for (Pending p : pending) {
+                if (p.scope.equals(scope)) p.cancelled = true;
+            }
+            for (Iterator<Key> it = entries.keySet().iterator(); it.hasNext(); ) {
+                if (it.next().scope.equals(scope)) {
+                    it.remove();
+                    removed++;
+                }
+            }
+        }
+        evictions.add(removed);
+        return removed;
+    }
+
+    public void clear() {
+        synchronized (entries) {
+            for (Pending p : pending) p.cancelled = true;
+            evictions.add(entries.size());
+            entries.clear();
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public long hitCount() {
+        return hits.sum();
+    }
+
+    public long missCount() {
+        return misses.sum();
+    }
+
+    public long evictionCount() {
+        return evictions.sum();
+    }
+
+    public double hitRate() {
+        long h = hits.sum(), total = h + misses.sum();
+        return (total == 0) ? 0.0 : (double) h / total;
+    }
+
+    private static byte[] fingerprint(byte[] key) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(key);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -8,22 +8,43 @@ public class DhParams {
     public final BigInteger q;
     public final BigInteger g;
     public final int encodedLen;
+    // имя стандартной группы (DhGroup) или null для сгенерированной
+    public final String name;
+
+    // таблица степеней g строится только для стандартных групп: они живут долго и
+    // общие для всех комнат, а для одноразовой группы построение дороже пары modPow
+    private static final int TABLE_WINDOW = 5;
+    private volatile FixedBaseTable table;
 
     public DhParams(BigInteger p, BigInteger q, BigInteger g) {
+        this(p, q, g, null);
+    }
+
+    DhParams(BigInteger p, BigInteger q, BigInteger g, String name) {
         this.p = p;
         this.q = q;
         this.g = g;
+        this.name = name;
         this.encodedLen = (p.bitLength() + 7) / 8;
     }
 
-    public static DhParams generate(int bitLength, int certainty, SecureRandom rng) {
-        BigInteger q, p;
-
-        while (true) {
-            q = new BigInteger(bitLength - 1, certainty, rng);
-            p = q.shiftLeft(1).add(BigInteger.ONE);
-            if (p.isProbablePrime(certainty)) break;
+    // g^x mod p
+    public BigInteger powG(BigInteger x) {
+        if (name == null) return g.modPow(x, p);
+        FixedBaseTable t = table;
+        if (t == null) {
+            synchronized (this) {
+                t = table;
+                if (t == null) table = t = new FixedBaseTable(g, p, q.bitLength(), TABLE_WINDOW);
+            }
         }
+        return t.pow(x);
+    }
+
+    public static DhParams generate(int bitLength, int certainty, SecureRandom rng) {
+        // решето по малым простым + поиск на всех ядрах, см. SafePrimes
+        BigInteger q = SafePrimes.findQ(bitLength, certainty, rng);
+        BigInteger p = q.shiftLeft(1).add(BigInteger.ONE);
 
         BigInteger g = findGenerator(p, q, rng);
 
@@ -0,0 +1,105 @@
+package com.project.crypto.keyx;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.security.SecureRandom;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Готовые группы DH (safe prime p = 2q + 1 и генератор): фоновые потоки держат в очереди
+// до depth групп, take() забирает одну за O(1). Поиск safe prime занимает от миллисекунд
+// до секунд, поэтому на потоке запроса его делаем только если очередь пуста
+// (такие случаи считаются в syncFallbacks). Каждая группа выдаётся ровно один раз.
+@Slf4j
+public final class DhParamsPool implements AutoCloseable {
+
+    private final int bitLength;
+    private final int certainty;
+    private final int depth;
+    private final SecureRandom rng = new SecureRandom();
+    private final BlockingQueue<DhParams> ready;
+    private final ExecutorService executor;
+    // сколько групп сейчас генерируется в фоне
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong taken = new AtomicLong();
+    private final AtomicLong syncFallbacks = new AtomicLong();
+
+    public DhParamsPool(int bitLength, int certainty, int depth, int threads) {
+        if (bitLength < 64 || certainty <= 0)
+            throw new IllegalArgumentException("Bit length must be at least 64 and certainty positive");
+        if (depth <= 0 || threads <= 0)
+            throw new IllegalArgumentException("Depth and thread count must be positive");
+        this.bitLength = bitLength;
+        this.certainty = certainty;
+        this.depth = depth;
+        this.ready = new ArrayBlockingQueue<>(depth);
+        AtomicInteger n = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "dh-params-" + n.incrementAndGet());
+            t.setDaemon(true);
+            t.setPriority(Thread.MIN_PRIORITY);
+            return t;
+        });
+        scheduleRefill();
+    }
+
+    public DhParams take() {
+        DhParams params = ready.poll();
+        taken.incrementAndGet();
+        scheduleRefill();
+        if (params != null) return params;
+
+        syncFallbacks.incrementAndGet();
+        log.warn("DH params pool is empty, generating {}-bit group on the caller thread", bitLength);
+        return DhParams.generate(bitLength, certainty, rng);
+    }
+
+    public int getBitLength() { return bitLength; }
+
+    // сколько групп готово прямо сейчас
+    public int available() {
+        return ready.size();
+    }
+
+    public long takenCount() { return taken.get(); }
+
+    public long syncFallbackCount() { return syncFallbacks.get(); }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    // задач в полёте не больше, чем свободных мест в очереди
+    private void scheduleRefill() {
+        while (true) {
+            int running = inFlight.get();
+            if (ready.size() + running >= depth) return;
+            if (!inFlight.compareAndSet(running, running + 1)) continue;
+            try {
+                executor.execute(this::generateOne);
+            } catch (RejectedExecutionException e) {
+                inFlight.decrementAndGet();
+                return;
+            }
+        }
+    }
+
+    private void generateOne() {
+        try {
+            DhParams params = DhParams.generate(bitLength, certainty, rng);
+            ready.offer(params);
+        } catch (RuntimeException e) {
+            log.error("DH params generation failed", e);
+            return;
+        } finally {
+            inFlight.decrementAndGet();
+        }
+        scheduleRefill();
+    }
+}
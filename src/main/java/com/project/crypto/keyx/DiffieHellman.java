@@ -26,8 +26,8 @@ public class DiffieHellman implements KeyAgreement {
     @Override
     public byte[] derivePublic(byte[] privateKey) {
         BigInteger x = Bytes.fromUnsigned(privateKey);
-        // y = g^x mod p
-        BigInteger y = params.g.modPow(x, params.p);
+        // y = g^x mod p, для стандартной группы по готовой таблице
+        BigInteger y = params.powG(x);
         return Bytes.toFixed(y, params.encodedLen);
     }
 
@@ -51,6 +51,19 @@ public class DiffieHellman implements KeyAgreement {
         return params.encodedLen;
     }
 
+    // SHA-256 в режиме счётчика на 64 бита длиннее q, затем в [2, q): смещение от mod пренебрежимо
+    @Override
+    public byte[] privateFromSecret(byte[] secret) {
+        int bytes = (params.q.bitLength() + 64 + 7) / 8;
+        byte[] wide = new byte[bytes];
+        for (int off = 0, counter = 0; off < bytes; off += 32, counter++) {
+            byte[] block = Bytes.sha256(new byte[]{(byte) (counter >>> 8), (byte) counter}, secret);
+            System.arraycopy(block, 0, wide, off, Math.min(32, bytes - off));
+        }
+        BigInteger x = Bytes.fromUnsigned(wide).mod(params.q.subtract(BigInteger.TWO)).add(BigInteger.TWO);
+        return Bytes.toFixed(x, params.encodedLen);
+    }
+
     public DhParams getParams() {
         return params;
     }
@@ -0,0 +1,70 @@
+package com.project.crypto.keyx;
+
+import java.math.BigInteger;
+
+// Таблица для возведения в степень одного и того же основания g по модулю p:
+// table[i][d] = g^(d * 2^(w*i)) mod p. Тогда g^x - произведение table[i][d_i] по
+// w-битным цифрам d_i показателя, без возведений в квадрат. Строится один раз
+// на группу и дальше только читается, поэтому разделяется между потоками.
+final class FixedBaseTable {
+
+    private final BigInteger p;
+    private final int k;
+    // mu = floor(4^k / p) для редукции Барретта
+    private final BigInteger mu;
+    private final int window;
+    private final BigInteger[][] table;
+
+    FixedBaseTable(BigInteger g, BigInteger p, int maxExponentBits, int window) {
+        if (window < 1 || window > 8) throw new IllegalArgumentException("Window must be 1..8 bits");
+        this.p = p;
+        this.k = p.bitLength();
+        this.mu = BigInteger.ONE.shiftLeft(2 * k).divide(p);
+        this.window = window;
+        int digits = (maxExponentBits + window - 1) / window;
+        int size = 1 << window;
+        this.table = new BigInteger[digits][size];
+
+        BigInteger base = g.mod(p);
+        // table[0][1] = g mod p, через него же идёт запасной modPow в pow()
+        for (int i = 0; i < digits; i++) {
+            BigInteger[] row = table[i];
+            row[0] = BigInteger.ONE;
+            row[1] = base;
+            for (int d = 2; d < size; d++) row[d] = mulMod(row[d - 1], base);
+            // основание следующей цифры: base^(2^w)
+            base = mulMod(row[size - 1], base);
+        }
+    }
+
+    // показатели длиннее таблицы считаем обычным modPow
+    BigInteger pow(BigInteger x) {
+        if (x.signum() < 0 || x.bitLength() > table.length * window)
+            return table[0][1].modPow(x, p);
+
+        int mask = (1 << window) - 1;
+        BigInteger r = null;
+        for (int i = 0, bit = 0; i < table.length && bit < x.bitLength(); i++, bit += window) {
+            int d = digit(x, bit, mask);
+            if (d == 0) continue;
+            r = (r == null) ? table[i][d] : mulMod(r, table[i][d]);
+        }
+        return (r == null) ? BigInteger.ONE : r;
+    }
+
+    // a, b < p. BigInteger.mod - деление Кнута без интринсиков и заметно медленнее
+    // двух лишних умножений, поэтому произведение сокращаем по Барретту
+    private BigInteger mulMod(BigInteger a, BigInteger b) {
+        BigInteger x = a.multiply(b);
+        BigInteger q = x.shiftRight(k - 1).multiply(mu).shiftRight(k + 1);
+        BigInteger r = x.subtract(q.multiply(p));
+        while (r.compareTo(p) >= 0) r = r.subtract(p);
+        return r;
+    }
+
+    private int digit(BigInteger x, int bit, int mask) {
+        int d = 0;
+        for (int k = window - 1; k >= 0; k--) d = (d << 1) | (x.testBit(bit + k) ? 1 : 0);
+        return d & mask;
+    }
+}
@@ -0,0 +1,81 @@
+package com.project.crypto.keyx;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+// Участник GroupKeyTree: закрытый ключ листа и секреты узлов на пути к корню.
+// Секрет узла пересчитывается, только если с прошлого раза изменилось его поддерево.
+// Все методы вызываются деревом под его блокировкой.
+public final class GroupKeyMember {
+
+    private static final class Cached {
+        final long version;
+        final byte[] secret;
+
+        Cached(long version, byte[] secret) {
+            this.version = version;
+            this.secret = secret;
+        }
+    }
+
+    private final String id;
+    private final KeyAgreement agreement;
+    private Map<GroupKeyTree.Node, Cached> secrets = new IdentityHashMap<>();
+    private byte[] leafPrivate;
+    private byte[] leafPublic;
+
+    public GroupKeyMember(String id, KeyAgreement agreement) {
+        this.id = id;
+        this.agreement = agreement;
+        refreshLeaf();
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    // новый закрытый ключ листа, все секреты пути устаревают
+    void refreshLeaf() {
+        leafPrivate = agreement.generatePrivate();
+        leafPublic = agreement.derivePublic(leafPrivate);
+        secrets.clear();
+    }
+
+    void forget() {
+        secrets.clear();
+    }
+
+    // вход или роль sponsor: пересчитать все узлы пути и опубликовать их открытые ключи
+    void publishPath(GroupKeyTree.Node leaf, GroupKeyTree tree) {
+        secrets.clear();
+        leaf.publicKey = leafPublic;
+        tree.touch(leaf);
+        byte[] secret = leafPrivate;
+        for (GroupKeyTree.Node n = leaf; n.parent != null; n = n.parent) {
+            secret = combine(secret, n.sibling().publicKey);
+            // открытый ключ корня никому не нужен
+            if (n.parent.parent != null) n.parent.publicKey = agreement.derivePublic(secret);
+            secrets.put(n.parent, new Cached(n.parent.version, secret));
+        }
+    }
+
+    byte[] rootSecret(GroupKeyTree.Node leaf) {
+        // узлы, выпавшие из пути после выходов, в новый кэш не попадают
+        Map<GroupKeyTree.Node, Cached> path = new IdentityHashMap<>();
+        byte[] secret = leafPrivate;
+        for (GroupKeyTree.Node n = leaf; n.parent != null; n = n.parent) {
+            GroupKeyTree.Node parent = n.parent;
+            Cached cached = secrets.get(parent);
+            if (cached == null || cached.version != parent.version)
+                cached = new Cached(parent.version, combine(secret, n.sibling().publicKey));
+            secret = cached.secret;
+            path.put(parent, cached);
+        }
+        secrets = path;
+        return secret;
+    }
+
+    private byte[] combine(byte[] mySecret, byte[] siblingPublic) {
+        return agreement.privateFromSecret(agreement.deriveShared(mySecret, siblingPublic));
+    }
+}
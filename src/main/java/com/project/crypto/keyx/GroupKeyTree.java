@@ -0,0 +1,175 @@
+package com.project.crypto.keyx;
+
+import com.project.crypto.util.Bytes;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntConsumer;
+
+// Групповой обмен ключами по дереву (TGDH). Листья - участники, секрет внутреннего
+// узла - общий секрет двух детей: privateFromSecret(deriveShared(секрет левого,
+// открытый ключ правого)), открытый ключ узла - derivePublic от его секрета.
+// Дерево хранит только открытые ключи узлов; секреты знает участник, и только на
+// своём пути к корню. Ключ комнаты - SHA-256 секрета корня.
+//
+// Вход: новый лист встаёт на место самого мелкого листа, и новый участник сам
+// пересчитывает свой путь. Выход: место родителя занимает брат, а самый правый
+// лист его поддерева (sponsor) меняет свой закрытый ключ и пересчитывает путь -
+// ушедший участник нового ключа не узнает. В обоих случаях это O(log N)
+// возведений в степень; остальные участники пересчитывают только изменившиеся
+// узлы своего пути. Каждое изменение увеличивает epoch.
+public final class GroupKeyTree {
+
+    static final class Node {
+        Node parent;
+        Node left;
+        Node right;
+        GroupKeyMember member; // только у листьев
+        byte[] publicKey;
+        // меняется при любом изменении в поддереве; по нему участники сбрасывают свои секреты
+        long version;
+
+        boolean isLeaf() { return member != null; }
+
+        Node sibling() { return (parent.left == this) ? parent.right : parent.left; }
+    }
+
+    public static final class Key {
+        public final int epoch;
+        public final byte[] key;
+
+        Key(int epoch, byte[] key) {
+            this.epoch = epoch;
+            this.key = key;
+        }
+    }
+
+    private final Map<String, Node> leaves = new HashMap<>();
+    // подписки участников на смену эпохи, по id
+    private final Map<String, IntConsumer> listeners = new ConcurrentHashMap<>();
+    private Node root;
+    private int epoch;
+    private long versions;
+
+    public void join(GroupKeyMember member) {
+        join(member, null);
+    }
+
+    // listener вызывается с новой эпохой после каждого входа и выхода (включая этот вход),
+    // вне блокировки дерева; снимается при выходе участника
+    public void join(GroupKeyMember member, IntConsumer listener) {
+        int e;
+        synchronized (this) {
+            if (leaves.containsKey(member.getId()))
+                throw new IllegalArgumentException("Already a member: " + member.getId());
+            Node leaf = new Node();
+            leaf.member = member;
+            leaves.put(member.getId(), leaf);
+            if (listener != null) listeners.put(member.getId(), listener);
+
+            if (root == null) {
+                root = leaf;
+            } else {
+                Node target = shallowestLeaf();
+                Node joint = new Node();
+                replace(target, joint);
+                joint.left = target;
+                joint.right = leaf;
+                target.parent = joint;
+                leaf.parent = joint;
+            }
+            member.publishPath(leaf, this);
+            e = ++epoch;
+        }
+        notifyListeners(e);
+    }
+
+    // false, если такого участника нет
+    public boolean leave(String memberId) {
+        int e;
+        synchronized (this) {
+            Node leaf = leaves.remove(memberId);
+            if (leaf == null) return false;
+            listeners.remove(memberId);
+            leaf.member.forget();
+
+            if (leaf == root) {
+                root = null;
+            } else {
+                Node sibling = leaf.sibling();
+                replace(leaf.parent, sibling);
+                Node sponsor = rightmostLeaf(sibling);
+                sponsor.member.refreshLeaf();
+                sponsor.member.publishPath(sponsor, this);
+            }
+            e = ++epoch;
+        }
+        notifyListeners(e);
+        return true;
+    }
+
+    // ключ комнаты для участника на текущую эпоху
+    public synchronized Key keyFor(GroupKeyMember member) {
+        Node leaf = leaves.get(member.getId());
+        if (leaf == null || leaf.member != member)
+            throw new IllegalArgumentException("Not a member: " + member.getId());
+        return new Key(epoch, Bytes.sha256(member.rootSecret(leaf)));
+    }
+
+    public synchronized int size() {
+        return leaves.size();
+    }
+
+    public synchronized int epoch() {
+        return epoch;
+    }
+
+    // высота дерева, у одного листа 0
+    public synchronized int depth() {
+        return depth(root);
+    }
+
+    // участник пересчитал секрет узла; помечаем весь путь к корню
+    void touch(Node node) {
+        long v = ++versions;
+        for (Node n = node; n != null; n = n.parent) n.version = v;
+    }
+
+    private void notifyListeners(int e) {
+        for (IntConsumer listener : listeners.values()) listener.accept(e);
+    }
+
+    // oldNode заменяется newNode в родителе (или становится корнем)
+    private void replace(Node oldNode, Node newNode) {
+        Node parent = oldNode.parent;
+        newNode.parent = parent;
+        if (parent == null) root = newNode;
+        else if (parent.left == oldNode) parent.left = newNode;
+        else parent.right = newNode;
+    }
+
+    // обход в ширину справа налево: первый встреченный лист - самый мелкий и правый
+    private Node shallowestLeaf() {
+        Deque<Node> queue = new ArrayDeque<>();
+        queue.add(root);
+        while (true) {
+            Node n = queue.poll();
+            if (n.isLeaf()) return n;
+            queue.add(n.right);
+            queue.add(n.left);
+        }
+    }
+
+    private static Node rightmostLeaf(Node n) {
+        while (!n.isLeaf()) n = n.right;
+        return n;
+    }
+
+    private static int depth(Node n) {
+        if (n == null || n.isLeaf()) return 0;
+        return 1 + Math.max(depth(n.left), depth(n.right));
+    }
+}
@@ -5,4 +5,8 @@ public interface KeyAgreement {
     byte[] derivePublic(byte[] privateKey);
     byte[] deriveShared(byte[] myPrivate, byte[] peerPublic);
     int getEncodedLength();
+
+    // закрытый ключ этой же схемы, детерминированно полученный из общего секрета;
+    // нужен групповому обмену, где секрет узла дерева - закрытый ключ для узла выше
+    byte[] privateFromSecret(byte[] secret);
 }
@@ -0,0 +1,16 @@
+package com.project.crypto.keyx;
+
+public enum KeyAgreementType {
+    DH,
+    X25519;
+
+    // null и пустая строка - DH, как у комнат, созданных до выбора обмена ключами
+    public static KeyAgreementType fromName(String name) {
+        if (name == null || name.isBlank()) return DH;
+        try {
+            return valueOf(name.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown key agreement: " + name);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.project.crypto.keyx;
+
+import java.math.BigInteger;
+import java.security.SecureRandom;
+import java.util.BitSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Поиск safe prime p = 2q + 1. Кандидаты q берутся окнами q0, q0 + 2, ..., и из окна
+// решетом по таблице малых простых выкидываются все, у которых q или 2q + 1 делится
+// на малое простое. Оставшиеся проверяются дешёвым тестом Ферма, и только потом
+// полным isProbablePrime. Каждое ядро ищет в своих окнах, первый найденный q
+// останавливает остальных.
+final class SafePrimes {
+
+    private static final int SIEVE_LIMIT = 1 << 14;
+    private static final int WINDOW = 8192;
+    private static final int[] SMALL_PRIMES = oddPrimesBelow(SIEVE_LIMIT);
+
+    // длинные CPU-задачи держим отдельно от общего пула
+    private static final ForkJoinPool POOL = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+
+    private SafePrimes() {}
+
+    // q длины bitLength - 1, такое что q и 2q + 1 простые
+    static BigInteger findQ(int bitLength, int certainty, SecureRandom rng) {
+        if (bitLength < 32) return naive(bitLength, certainty, rng);
+
+        AtomicReference<BigInteger> found = new AtomicReference<>();
+        int helpers = POOL.getParallelism() - 1;
+        for (int i = 0; i < helpers; i++)
+            POOL.execute(() -> search(bitLength - 1, certainty, rng, found));
+        // вызывающий поток ищет сам, поэтому на одном ядре пул не нужен
+        search(bitLength - 1, certainty, rng, found);
+        return found.get();
+    }
+
+    private static void search(int qBits, int certainty, SecureRandom rng, AtomicReference<BigInteger> found) {
+        BitSet composite = new BitSet(WINDOW);
+        while (found.get() == null) {
+            BigInteger q0 = new BigInteger(qBits, rng).setBit(qBits - 1).setBit(0);
+            sieve(q0, composite);
+
+            for (int i = composite.nextClearBit(0); i < WINDOW; i = composite.nextClearBit(i + 1)) {
+                if (found.get() != null) return;
+                BigInteger q = q0.add(BigInteger.valueOf(2L * i));
+                if (q.bitLength() != qBits) break;
+                if (isSafePrime(q, certainty)) {
+                    found.compareAndSet(null, q);
+                    return;
+                }
+            }
+        }
+    }
+
+    // бит i - кандидат q0 + 2i, у которого q или 2q + 1 делится на малое простое
+    private static void sieve(BigInteger q0, BitSet composite) {
+        composite.clear();
+        for (int r : SMALL_PRIMES) {
+            int m = q0.mod(BigInteger.valueOf(r)).intValue();
+            int inv2 = (r + 1) / 2;
+            // q0 + 2i ≡ 0 (mod r)
+            int a = (int) ((long) (r - m) * inv2 % r);
+            // 2(q0 + 2i) + 1 ≡ 0, т.е. q0 + 2i ≡ (r - 1) / 2 (mod r)
+            int b = (int) ((long) (((r - 1) / 2 - m) % r + r) * inv2 % r);
+            for (int i = a; i < WINDOW; i += r) composite.set(i);
+            for (int i = b; i < WINDOW; i += r) composite.set(i);
+        }
+    }
+
+    private static boolean isSafePrime(BigInteger q, int certainty) {
+        BigInteger p = q.shiftLeft(1).add(BigInteger.ONE);
+        // тест Ферма по основанию 2 отсекает почти всех составных за одно возведение в степень
+        if (!BigInteger.TWO.modPow(q.subtract(BigInteger.ONE), q).equals(BigInteger.ONE)) return false;
+        if (!BigInteger.TWO.modPow(q.shiftLeft(1), p).equals(BigInteger.ONE)) return false;
+        return q.isProbablePrime(certainty) && p.isProbablePrime(certainty);
+    }
+
+    private static BigInteger naive(int bitLength, int certainty, SecureRandom rng) {
+        while (true) {
+            BigInteger q = new BigInteger(bitLength - 1, certainty, rng);
+            if (q.shiftLeft(1).add(BigInteger.ONE).isProbablePrime(certainty)) return q;
+        }
+    }
+
+    private static int[] oddPrimesBelow(int limit) {
+        BitSet composite = new BitSet(limit);
+        int count = 0;
+        int[] primes = new int[limit / 2];
+        for (int i = 3; i < limit; i += 2) {
+            if (composite.get(i)) continue;
+            primes[count++] = i;
+            for (long j = (long) i * i; j < limit; j += 2L * i) composite.set((int) j);
+        }
+        return java.util.Arrays.copyOf(primes, count);
+    }
+}
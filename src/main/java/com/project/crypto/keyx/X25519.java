@@ -0,0 +1,79 @@
+package com.project.crypto.keyx;
+
+import com.project.crypto.util.Bytes;
+
+import java.math.BigInteger;
+import java.security.GeneralSecurityException;
+import java.security.InvalidKeyException;
+import java.security.KeyFactory;
+import java.security.SecureRandom;
+import java.security.spec.NamedParameterSpec;
+import java.security.spec.XECPrivateKeySpec;
+import java.security.spec.XECPublicKeySpec;
+
+// Обмен ключами на кривой Curve25519 (RFC 7748) через JDK-реализацию XDH.
+// Ключи и общий секрет - 32 байта в little-endian, параметры генерировать не нужно.
+// Публичный ключ - тот же X25519(k, 9), т.е. общий секрет с базовой точкой u = 9.
+public class X25519 implements KeyAgreement {
+    public static final int KEY_LENGTH = 32;
+
+    private static final BigInteger BASE_U = BigInteger.valueOf(9);
+
+    private final SecureRandom rng = new SecureRandom();
+
+    @Override
+    public byte[] generatePrivate() {
+        // обрезку битов скаляра (clamping) делает сама реализация XDH
+        byte[] k = new byte[KEY_LENGTH];
+        rng.nextBytes(k);
+        return k;
+    }
+
+    @Override
+    public byte[] derivePublic(byte[] privateKey) {
+        return agree(privateKey, BASE_U);
+    }
+
+    @Override
+    public byte[] deriveShared(byte[] myPrivate, byte[] peerPublic) {
+        if (peerPublic == null || peerPublic.length != KEY_LENGTH)
+            throw new IllegalArgumentException("Неверный публичный ключ X25519");
+        return agree(myPrivate, decodeU(peerPublic));
+    }
+
+    @Override
+    public int getEncodedLength() {
+        return KEY_LENGTH;
+    }
+
+    // любые 32 байта - допустимый скаляр
+    @Override
+    public byte[] privateFromSecret(byte[] secret) {
+        return Bytes.sha256(secret);
+    }
+
+    private static byte[] agree(byte[] scalar, BigInteger u) {
+        if (scalar == null || scalar.length != KEY_LENGTH)
+            throw new IllegalArgumentException("Private key must be 32 bytes");
+        try {
+            KeyFactory kf = KeyFactory.getInstance("XDH");
+            javax.crypto.KeyAgreement ka = javax.crypto.KeyAgreement.getInstance("XDH");
+            ka.init(kf.generatePrivate(new XECPrivateKeySpec(NamedParameterSpec.X25519, scalar)));
+            ka.doPhase(kf.generatePublic(new XECPublicKeySpec(NamedParameterSpec.X25519, u)), true);
+            return ka.generateSecret();
+        } catch (InvalidKeyException e) {
+            // точка малого порядка: общий секрет получился бы нулевым
+            throw new IllegalArgumentException("Неверный публичный ключ X25519", e);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("XDH is not available", e);
+        }
+    }
+
+    // u-координата в little-endian, старший бит игнорируется (RFC 7748, 5)
+    private static BigInteger decodeU(byte[] le) {
+        byte[] be = new byte[KEY_LENGTH];
+        for (int i = 0; i < KEY_LENGTH; i++) be[i] = le[KEY_LENGTH - 1 - i];
+        be[0] &= 0x7f;
+        return new BigInteger(1, be);
+    }
+}
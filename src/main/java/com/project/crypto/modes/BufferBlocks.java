@@ -0,0 +1,76 @@
+package com.project.crypto.modes;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+// Прогон ModeContext по ByteBuffer. Если у dst есть массив - работаем прямо в нём
+// (direct src копируется в dst одним bulk get и шифруется на месте), иначе
+// direct dst заполняется кусками через небольшой буфер в куче.
+final class BufferBlocks {
+
+    private static final int CHUNK_BLOCKS = 1024;
+
+    private BufferBlocks() {}
+
+    static int process(ModeContext ctx, int blockSize, ByteBuffer src, ByteBuffer dst) {
+        int len = src.remaining();
+        if (dst.remaining() < len)
+            throw new IllegalArgumentException("Output buffer too small: " + dst.remaining() + " < " + len);
+
+        if (dst.hasArray()) {
+            byte[] out = dst.array();
+            int outOff = dst.arrayOffset() + dst.position();
+            if (src.hasArray()) {
+                run(ctx, blockSize, src.array(), src.arrayOffset() + src.position(), out, outOff, len);
+                src.position(src.limit());
+            } else {
+                src.get(out, outOff, len);
+                run(ctx, blockSize, out, outOff, out, outOff, len);
+            }
+            dst.position(dst.position() + len);
+            return len;
+        }
+
+        byte[] chunk = new byte[Math.min(len, CHUNK_BLOCKS * blockSize)];
+        while (src.hasRemaining()) {
+            int n = Math.min(src.remaining(), chunk.length);
+            if (src.hasArray()) {
+                run(ctx, blockSize, src.array(), src.arrayOffset() + src.position(), chunk, 0, n);
+                src.position(src.position() + n);
+            } else {
+                src.get(chunk, 0, n);
+                run(ctx, blockSize, chunk, 0, chunk, 0, n);
+            }
+            dst.put(chunk, 0, n);
+        }
+        return len;
+    }
+
+    // неполный блок может быть только последним
+    static void run(ModeContext ctx, int blockSize, byte[] in, int inOff, byte[] out, int outOff, int len) {
+        int blocks = len / blockSize;
+        if (blocks > 0) ctx.processBlocks(in, inOff, out, outOff, blocks);
+        int tail = len - blocks * blockSize;
+        if (tail > 0) {
+            int done = blocks * blockSize;
+            ctx.processTail(in, inOff + done, out, outOff + done, tail);
+        }
+    }
+
+    // расшифровать ciphertext с блока firstBlock (ctx уже стоит на нём) до конца диапазона
+    // и вернуть байты [byteOffset, byteOffset + length)
+    static byte[] range(ModeContext ctx, int blockSize, byte[] ciphertext, int firstBlock, int byteOffset, int length) {
+        if (byteOffset < 0 || length < 0 || byteOffset > ciphertext.length - length)
+            throw new IllegalArgumentException("Range out of bounds: offset=" + byteOffset + ", length=" + length);
+        if (length == 0) return new byte[0];
+
+        int start = firstBlock * blockSize;
+        long rangeEnd = ((long) byteOffset + length + blockSize - 1) / blockSize * blockSize;
+        int end = (int) Math.min(ciphertext.length, rangeEnd);
+
+        byte[] plain = new byte[end - start];
+        run(ctx, blockSize, ciphertext, start, plain, 0, plain.length);
+        int from = byteOffset - start;
+        return (from == 0 && length == plain.length) ? plain : Arrays.copyOfRange(plain, from, from + length);
+    }
+}
@@ -6,6 +6,8 @@ import java.util.Arrays;
 
 public class CbcMode implements CipherMode{
 
+    private static final int BATCH_BLOCKS = 256;
+
     private final Algorithm cipher;
 
     public CbcMode(Algorithm cipher) {
@@ -14,43 +16,171 @@ public class CbcMode implements CipherMode{
 
     @Override
     public byte[] encrypt(byte[] data, byte[] iv) {
+        byte[] out = new byte[data.length];
+        encrypt(data, 0, out, 0, data.length, iv);
+        return out;
+    }
 
+    @Override
+    public void encrypt(byte[] in, int inOff, byte[] out, int outOff, int len, byte[] iv) {
         int bs = cipher.getBlockSize();
+        if (len % bs != 0)
+            throw new IllegalArgumentException("Data length must be a multiple of block size");
 
-        byte[] out  = new byte[data.length];
-        byte[] prev = Arrays.copyOf(iv, bs);
-        byte[] buf  = new byte[bs];
-
-        for (int off = 0; off < data.length; off += bs) {
-            System.arraycopy(data, off, buf, 0, bs);
-            xorArray(buf, prev);
-            byte[] c = cipher.encryptBlock(buf);
-            System.arraycopy(c, 0, out, off, bs);
-            prev = c;
+        byte[] prev = (iv.length >= bs) ? iv : Arrays.copyOf(iv, bs);
+        int prevOff = 0;
+
+        for (int off = 0; off < len; off += bs) {
+            int o = outOff + off, i0 = inOff + off;
+            for (int i = 0; i < bs; i++) out[o + i] = (byte) (in[i0 + i] ^ prev[prevOff + i]);
+            cipher.encryptBlock(out, o, out, o);
+            prev = out;
+            prevOff = o;
         }
+    }
 
+    @Override
+    public byte[] decrypt(byte[] data, byte[] iv) {
+        byte[] out = new byte[data.length];
+        decrypt(data, 0, out, 0, data.length, iv);
         return out;
     }
 
+    // блоки расшифровываются пачками (они независимы), затем XOR с предыдущим шифроблоком;
+    // большие данные делятся на куски и расшифровываются параллельно
     @Override
-    public byte[] decrypt(byte[] data, byte[] iv) {
+    public void decrypt(byte[] in, int inOff, byte[] out, int outOff, int len, byte[] iv) {
         int bs = cipher.getBlockSize();
+        if (len % bs != 0)
+            throw new IllegalArgumentException("Data length must be a multiple of block size");
 
-        byte[] out  = new byte[data.length];
-        byte[] prev = Arrays.copyOf(iv, bs);
-        byte[] buf  = new byte[bs];
-
-        for (int off = 0; off < data.length; off += bs) {
-            System.arraycopy(data, off, buf, 0, bs);
-            byte[] d = cipher.decryptBlock(buf);
-            xorArray(d, prev);
-            System.arraycopy(d, 0, out, off, bs);
-            System.arraycopy(buf, 0, prev, 0, bs);
+        byte[] prev = (iv.length >= bs) ? iv : Arrays.copyOf(iv, bs);
+        ParallelBlocks.forEachRange(cipher, len / bs, len,
+                (first, count) -> decryptRange(in, inOff, prev, out, outOff, first, count));
+    }
+
+    private void decryptRange(byte[] in, int inOff, byte[] iv, byte[] out, int outOff, int first, int count) {
+        int bs = cipher.getBlockSize();
+
+        for (int done = 0; done < count; done += BATCH_BLOCKS) {
+            int n = Math.min(BATCH_BLOCKS, count - done);
+            int start = (first + done) * bs;
+            cipher.decryptBlocks(in, inOff + start, out, outOff + start, n);
+
+            int off = start;
+            if (start == 0) {
+                for (int i = 0; i < bs; i++) out[outOff + i] ^= iv[i];
+                off = bs;
+            }
+            for (int end = start + n * bs; off < end; off++) out[outOff + off] ^= in[inOff + off - bs];
+        }
+    }
+
+    // Шифрование: внутри сообщения блоки сцеплены, но блок j разных сообщений независим,
+    // поэтому на шаге j блоки j всех сообщений собираются в буфер и шифруются одним encryptBlocks
+    @Override
+    public void encryptBatch(byte[] buf, int[] offsets, byte[][] ivs) {
+        int bs = cipher.getBlockSize();
+        int n = ivs.length;
+        int maxBlocks = 0;
+        for (int i = 0; i < n; i++) {
+            int len = offsets[i + 1] - offsets[i];
+            if (len % bs != 0)
+                throw new IllegalArgumentException("Data length must be a multiple of block size");
+            maxBlocks = Math.max(maxBlocks, len / bs);
+        }
+
+        byte[] lanes = Scratch.blocks(Math.min(n, BATCH_BLOCKS) * bs);
+        int[] pos = new int[Math.min(n, BATCH_BLOCKS)];
+        for (int j = 0; j < maxBlocks; j++) {
+            int k = 0;
+            for (int i = 0; i < n; i++) {
+                int off = offsets[i] + j * bs;
+                if (off >= offsets[i + 1]) continue;
+                byte[] prev = (j == 0) ? ivs[i] : buf;
+                int prevOff = (j == 0) ? 0 : off - bs;
+                for (int b = 0; b < bs; b++) lanes[k * bs + b] = (byte) (buf[off + b] ^ prev[prevOff + b]);
+                pos[k++] = off;
+                if (k == pos.length) {
+                    flushLanes(lanes, pos, k, buf);
+                    k = 0;
+                }
+            }
+            if (k > 0) flushLanes(lanes, pos, k, buf);
         }
-        return out;
     }
 
-    private static void xorArray(byte[] a, byte[] b) {
-        for (int i = 0; i < a.length; i++) a[i] ^= b[i];
+    private void flushLanes(byte[] lanes, int[] pos, int k, byte[] buf) {
+        int bs = cipher.getBlockSize();
+        cipher.encryptBlocks(lanes, 0, lanes, 0, k);
+        for (int l = 0; l < k; l++) System.arraycopy(lanes, l * bs, buf, pos[l], bs);
+    }
+
+    // Расшифрование: все блоки пачки расшифровываются подряд, затем XOR с предыдущим
+    // шифроблоком своего сообщения (или его IV)
+    @Override
+    public void decryptBatch(byte[] in, byte[] out, int[] offsets, byte[][] ivs) {
+        int bs = cipher.getBlockSize();
+        int n = ivs.length;
+        for (int i = 0; i < n; i++)
+            if ((offsets[i + 1] - offsets[i]) % bs != 0)
+                throw new IllegalArgumentException("Data length must be a multiple of block size");
+
+        int start = offsets[0], total = offsets[n] - start;
+        ParallelBlocks.forEachRange(cipher, total / bs, total,
+                (first, count) -> cipher.decryptBlocks(in, start + first * bs, out, start + first * bs, count));
+
+        for (int i = 0; i < n; i++) {
+            int from = offsets[i], end = offsets[i + 1];
+            if (from == end) continue;
+            for (int b = 0; b < bs; b++) out[from + b] ^= ivs[i][b];
+            for (int p = from + bs; p < end; p++) out[p] ^= in[p - bs];
+        }
+    }
+
+    // при расшифровании P[k] = D(C[k]) ^ C[k-1]: с блока k можно начать, взяв C[k-1] за IV
+    @Override
+    public byte[] decryptRange(byte[] ciphertext, byte[] iv, int byteOffset, int length) {
+        int bs = cipher.getBlockSize();
+        int first = Math.max(0, Math.min(byteOffset, ciphertext.length) / bs);
+        byte[] prev = (first == 0) ? iv : Arrays.copyOfRange(ciphertext, (first - 1) * bs, first * bs);
+        return BufferBlocks.range(newContext(false, prev), bs, ciphertext, first, byteOffset, length);
+    }
+
+    @Override
+    public int getBlockSize() {
+        return cipher.getBlockSize();
+    }
+
+    @Override
+    public ModeContext newContext(boolean encrypt, byte[] iv) {
+        int bs = cipher.getBlockSize();
+        byte[] prev = Arrays.copyOf(iv, bs);
+
+        if (encrypt) {
+            return (in, inOff, out, outOff, blocks) -> {
+                for (int b = 0; b < blocks; b++) {
+                    int i0 = inOff + b * bs, o0 = outOff + b * bs;
+                    for (int i = 0; i < bs; i++) out[o0 + i] = (byte) (in[i0 + i] ^ prev[i]);
+                    cipher.encryptBlock(out, o0, out, o0);
+                    System.arraycopy(out, o0, prev, 0, bs);
+                }
+            };
+        }
+
+        // шифротекст пачки сохраняется до расшифрования: in и out могут совпадать
+        byte[] saved = new byte[BATCH_BLOCKS * bs];
+        return (in, inOff, out, outOff, blocks) -> {
+            for (int done = 0; done < blocks; done += BATCH_BLOCKS) {
+                int n = Math.min(BATCH_BLOCKS, blocks - done);
+                int o = outOff + done * bs;
+                System.arraycopy(in, inOff + done * bs, saved, 0, n * bs);
+                cipher.decryptBlocks(saved, 0, out, o, n);
+
+                for (int i = 0; i < bs; i++) out[o + i] ^= prev[i];
+                for (int j = bs; j < n * bs; j++) out[o + j] ^= saved[j - bs];
+                System.arraycopy(saved, (n - 1) * bs, prev, 0, bs);
+            }
+        };
     }
 }
@@ -5,6 +5,8 @@ import java.util.Arrays;
 
 public class CfbMode implements CipherMode {
 
+    private static final int BATCH_BLOCKS = 256;
+
     private final Algorithm cipher;
 
     public CfbMode(Algorithm cipher) {
@@ -13,43 +15,123 @@ public class CfbMode implements CipherMode {
 
     @Override
     public byte[] encrypt(byte[] data, byte[] iv) {
+        byte[] out = new byte[data.length];
+        encrypt(data, 0, out, 0, data.length, iv);
+        return out;
+    }
+
+    @Override
+    public void encrypt(byte[] in, int inOff, byte[] out, int outOff, int len, byte[] iv) {
         int bs = cipher.getBlockSize();
 
-        byte[] out  = new byte[data.length];
-        byte[] prev = Arrays.copyOf(iv, bs);
+        byte[] enc  = new byte[bs];
+        byte[] prev = (iv.length >= bs) ? iv : Arrays.copyOf(iv, bs);
+        int prevOff = 0;
 
-        for (int off = 0; off < data.length; off += bs) {
-            byte[] enc = cipher.encryptBlock(prev);
-            int rem = Math.min(bs, data.length - off);
+        for (int off = 0; off < len; off += bs) {
+            cipher.encryptBlock(prev, prevOff, enc, 0);
+            int rem = Math.min(bs, len - off);
 
             for (int i = 0; i < rem; i++) {
-                out[off + i] = (byte) (data[off + i] ^ enc[i]);
+                out[outOff + off + i] = (byte) (in[inOff + off + i] ^ enc[i]);
             }
 
-            System.arraycopy(out, off, prev, 0, rem);
+            prev = out;
+            prevOff = outOff + off;
         }
+    }
 
+    @Override
+    public byte[] decrypt(byte[] data, byte[] iv) {
+        byte[] out = new byte[data.length];
+        decrypt(data, 0, out, 0, data.length, iv);
         return out;
     }
 
+    // при расшифровании вход каждого блока - уже известный шифротекст,
+    // поэтому keystream считается пачками (E(C[i-1]) пишется прямо в out[i]),
+    // а большие данные делятся на куски и расшифровываются параллельно
     @Override
-    public byte[] decrypt(byte[] data, byte[] iv) {
+    public void decrypt(byte[] in, int inOff, byte[] out, int outOff, int len, byte[] iv) {
         int bs = cipher.getBlockSize();
+        byte[] first = (iv.length >= bs) ? iv : Arrays.copyOf(iv, bs);
 
-        byte[] out  = new byte[data.length];
-        byte[] prev = Arrays.copyOf(iv, bs);
-
-        for (int off = 0; off < data.length; off += bs) {
-            byte[] enc = cipher.encryptBlock(prev);
-            int rem = Math.min(bs, data.length - off);
+        ParallelBlocks.forEachRange(cipher, (len + bs - 1) / bs, len,
+                (from, count) -> decryptRange(in, inOff, len, first, out, outOff, from, count));
+    }
 
-            for (int i = 0; i < rem; i++) {
-                out[off + i] = (byte) (data[off + i] ^ enc[i]);
+    private void decryptRange(byte[] in, int inOff, int len, byte[] iv, byte[] out, int outOff, int first, int count) {
+        int bs = cipher.getBlockSize();
+        int end  = first + count;
+        int full = Math.min(end, len / bs);
+
+        int k = first;
+        while (k < full) {
+            int n = Math.min(BATCH_BLOCKS, full - k);
+            int start = k * bs;
+            if (k == 0) {
+                cipher.encryptBlock(iv, 0, out, outOff);
+                cipher.encryptBlocks(in, inOff, out, outOff + bs, n - 1);
+            } else {
+                cipher.encryptBlocks(in, inOff + start - bs, out, outOff + start, n);
             }
+            for (int i = start, stop = start + n * bs; i < stop; i++) out[outOff + i] ^= in[inOff + i];
+            k += n;
+        }
 
-            System.arraycopy(data, off, prev, 0, rem);
+        if (end > full) {
+            // неполный последний блок
+            byte[] enc = new byte[bs];
+            if (full == 0)
+                cipher.encryptBlock(iv, 0, enc, 0);
+            else
+                cipher.encryptBlock(in, inOff + (full - 1) * bs, enc, 0);
+            int off = full * bs;
+            for (int i = 0; off + i < len; i++) out[outOff + off + i] = (byte) (in[inOff + off + i] ^ enc[i]);
         }
+    }
 
-        return out;
+    // при расшифровании P[k] = C[k] ^ E(C[k-1]): с блока k можно начать, взяв C[k-1] за IV
+    @Override
+    public byte[] decryptRange(byte[] ciphertext, byte[] iv, int byteOffset, int length) {
+        int bs = cipher.getBlockSize();
+        int first = Math.max(0, Math.min(byteOffset, ciphertext.length) / bs);
+        byte[] prev = (first == 0) ? iv : Arrays.copyOfRange(ciphertext, (first - 1) * bs, first * bs);
+        return BufferBlocks.range(newContext(false, prev), bs, ciphertext, first, byteOffset, length);
+    }
+
+    @Override
+    public int getBlockSize() {
+        return cipher.getBlockSize();
+    }
+
+    @Override
+    public ModeContext newContext(boolean encrypt, byte[] iv) {
+        int bs = cipher.getBlockSize();
+        byte[] prev = Arrays.copyOf(iv, bs);
+        byte[] enc  = new byte[bs];
+
+        return new ModeContext() {
+            @Override
+            public void processBlocks(byte[] in, int inOff, byte[] out, int outOff, int blocks) {
+                for (int b = 0; b < blocks; b++) {
+                    int i0 = inOff + b * bs, o0 = outOff + b * bs;
+                    cipher.encryptBlock(prev, 0, enc, 0);
+                    if (encrypt) {
+                        for (int i = 0; i < bs; i++) out[o0 + i] = (byte) (in[i0 + i] ^ enc[i]);
+                        System.arraycopy(out, o0, prev, 0, bs);
+                    } else {
+                        System.arraycopy(in, i0, prev, 0, bs);
+                        for (int i = 0; i < bs; i++) out[o0 + i] = (byte) (prev[i] ^ enc[i]);
+                    }
+                }
+            }
+
+            @Override
+            public void processTail(byte[] in, int inOff, byte[] out, int outOff, int len) {
+                cipher.encryptBlock(prev, 0, enc, 0);
+                for (int i = 0; i < len; i++) out[outOff + i] = (byte) (in[inOff + i] ^ enc[i]);
+            }
+        };
     }
-}
\ No newline at end of file
+}
@@ -1,6 +1,65 @@
 package com.project.crypto.modes;
 
+import java.nio.ByteBuffer;
+
+// Режимы не хранят состояния между вызовами (IV передаётся в каждый вызов, цепочка
+// живёт в локальных переменных или в ModeContext), поэтому один экземпляр можно
+// использовать из многих потоков, если это можно для его Algorithm.
 public interface CipherMode {
     byte[] encrypt(byte[] data, byte[] iv);
     byte[] decrypt(byte[] data, byte[] iv);
-}
\ No newline at end of file
+
+    // то же в готовый буфер: len байт из in[inOff..] в out[outOff..]. При шифровании
+    // in и out могут совпадать (на месте, outOff == inOff), при расшифровании не должны перекрываться
+    void encrypt(byte[] in, int inOff, byte[] out, int outOff, int len, byte[] iv);
+    void decrypt(byte[] in, int inOff, byte[] out, int outOff, int len, byte[] iv);
+
+    int getBlockSize();
+
+    // Пачка независимых сообщений в одном массиве: сообщение i занимает
+    // buf[offsets[i], offsets[i + 1]) и шифруется со своим ivs[i]. Режимы, где это
+    // возможно, чередуют блоки разных сообщений в одном вызове encryptBlocks.
+    default void encryptBatch(byte[] buf, int[] offsets, byte[][] ivs) {
+        for (int i = 0; i < ivs.length; i++)
+            encrypt(buf, offsets[i], buf, offsets[i], offsets[i + 1] - offsets[i], ivs[i]);
+    }
+
+    // in и out не должны перекрываться
+    default void decryptBatch(byte[] in, byte[] out, int[] offsets, byte[][] ivs) {
+        for (int i = 0; i < ivs.length; i++)
+            decrypt(in, offsets[i], out, offsets[i], offsets[i + 1] - offsets[i], ivs[i]);
+    }
+
+    // для потоковой обработки (см. CipherContext): результат совпадает с encrypt/decrypt
+    ModeContext newContext(boolean encrypt, byte[] iv);
+
+    // src.remaining() байт из src в dst без копирования всего буфера в кучу;
+    // возвращает число записанных байт, позиции обоих буферов сдвигаются
+    default int encrypt(ByteBuffer src, ByteBuffer dst, byte[] iv) {
+        return BufferBlocks.process(newContext(true, iv), getBlockSize(), src, dst);
+    }
+
+    default int decrypt(ByteBuffer src, ByteBuffer dst, byte[] iv) {
+        return BufferBlocks.process(newContext(false, iv), getBlockSize(), src, dst);
+    }
+
+    // Произвольный доступ: true, если состояние режима перед блоком i считается по одному
+    // индексу (ECB, CTR, Random Delta), и тогда работает newContext(..., firstBlock)
+    default boolean isSeekable() {
+        return false;
+    }
+
+    // контекст, начинающий с блока firstBlock, как будто перед ним обработано firstBlock блоков
+    default ModeContext newContext(boolean encrypt, byte[] iv, long firstBlock) {
+        if (firstBlock == 0) return newContext(encrypt, iv);
+        throw new UnsupportedOperationException(getClass().getSimpleName() + " does not support random access");
+    }
+
+    // то же, что Arrays.copyOfRange(decrypt(ciphertext, iv), byteOffset, byteOffset + length);
+    // seekable-режимы расшифровывают только блоки, покрывающие диапазон, остальные - с начала
+    default byte[] decryptRange(byte[] ciphertext, byte[] iv, int byteOffset, int length) {
+        int firstBlock = isSeekable() ? byteOffset / getBlockSize() : 0;
+        return BufferBlocks.range(newContext(false, iv, firstBlock), getBlockSize(),
+                ciphertext, firstBlock, byteOffset, length);
+    }
+}
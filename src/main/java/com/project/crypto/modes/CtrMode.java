@@ -1,11 +1,12 @@
 package com.project.crypto.modes;
 
 import com.project.crypto.ciphers.Algorithm;
-import com.project.crypto.util.Bytes;
 
 import java.util.Arrays;
 
-public class CtrMode implements CipherMode {
+public class CtrMode implements KeystreamMode {
+
+    private static final int BATCH_BLOCKS = 256;
 
     private final Algorithm algorithm;
 
@@ -15,31 +16,100 @@ public class CtrMode implements CipherMode {
 
     @Override
     public byte[] encrypt(byte[] data, byte[] iv) {
-        int blockSize = algorithm.getBlockSize();
         byte[] result = new byte[data.length];
+        encrypt(data, 0, result, 0, data.length, iv);
+        return result;
+    }
 
-        int blocksCount = (int) Math.ceil((double) data.length / blockSize);
-        byte[] counterBlock = Arrays.copyOf(iv, blockSize);
+    // блок i зависит только от IV + i, поэтому большие данные режутся на куски
+    // и шифруются параллельно (см. ParallelBlocks)
+    @Override
+    public void encrypt(byte[] in, int inOff, byte[] out, int outOff, int len, byte[] iv) {
+        int blockSize = algorithm.getBlockSize();
+        int blocksCount = (len + blockSize - 1) / blockSize;
 
-        for (int i = 0; i < blocksCount; i++) {
-            int idx = i * blockSize;
-            int remaining = Math.min(blockSize, data.length - idx);
+        ParallelBlocks.forEachRange(algorithm, blocksCount, len,
+                (first, count) -> process(in, inOff, len, iv, out, outOff, first, count));
+    }
 
-            byte[] keystream = algorithm.encryptBlock(counterBlock);
-            byte[] block = Arrays.copyOfRange(data, idx, idx + remaining);
+    @Override
+    public byte[] decrypt(byte[] data, byte[] iv) {
+        return encrypt(data, iv);
+    }
 
-            byte[] encrypted = Bytes.xor(block, Arrays.copyOf(keystream, remaining));
-            System.arraycopy(encrypted, 0, result, idx, remaining);
+    @Override
+    public void decrypt(byte[] in, int inOff, byte[] out, int outOff, int len, byte[] iv) {
+        encrypt(in, inOff, out, outOff, len, iv);
+    }
 
-            incrementCounter(counterBlock);
+    // счётчики всех сообщений пачки выписываются в общий буфер и шифруются
+    // одним вызовом encryptBlocks на BATCH_BLOCKS блоков, независимо от границ сообщений
+    @Override
+    public void encryptBatch(byte[] buf, int[] offsets, byte[][] ivs) {
+        xorBatch(buf, buf, offsets, ivs);
+    }
+
+    @Override
+    public void decryptBatch(byte[] in, byte[] out, int[] offsets, byte[][] ivs) {
+        xorBatch(in, out, offsets, ivs);
+    }
+
+    private void xorBatch(byte[] in, byte[] out, int[] offsets, byte[][] ivs) {
+        int blockSize = algorithm.getBlockSize();
+        byte[] keystream = Scratch.blocks(BATCH_BLOCKS * blockSize);
+        int[] pos = new int[BATCH_BLOCKS];
+        int[] len = new int[BATCH_BLOCKS];
+        byte[] counterBlock = new byte[blockSize];
+
+        int k = 0;
+        for (int i = 0; i < ivs.length; i++) {
+            Arrays.fill(counterBlock, (byte) 0);
+            System.arraycopy(ivs[i], 0, counterBlock, 0, Math.min(blockSize, ivs[i].length));
+            for (int off = offsets[i]; off < offsets[i + 1]; off += blockSize) {
+                System.arraycopy(counterBlock, 0, keystream, k * blockSize, blockSize);
+                incrementCounter(counterBlock);
+                pos[k] = off;
+                len[k] = Math.min(blockSize, offsets[i + 1] - off);
+                if (++k == BATCH_BLOCKS) {
+                    flushKeystream(in, out, keystream, pos, len, k);
+                    k = 0;
+                }
+            }
         }
+        if (k > 0) flushKeystream(in, out, keystream, pos, len, k);
+    }
 
-        return result;
+    private void flushKeystream(byte[] in, byte[] out, byte[] keystream, int[] pos, int[] len, int k) {
+        int blockSize = algorithm.getBlockSize();
+        algorithm.encryptBlocks(keystream, 0, keystream, 0, k);
+        for (int b = 0; b < k; b++) {
+            int p = pos[b], ks = b * blockSize;
+            for (int j = 0; j < len[b]; j++) out[p + j] = (byte) (in[p + j] ^ keystream[ks + j]);
+        }
     }
 
-    @Override
-    public byte[] decrypt(byte[] data, byte[] iv) {
-        return encrypt(data, iv);
+    // блоки [first, first + count): счётчик стартует сразу с IV + first,
+    // счётчики пачки выписываются в буфер и шифруются одним вызовом encryptBlocks
+    private void process(byte[] in, int inOff, int length, byte[] iv, byte[] out, int outOff, int first, int count) {
+        int blockSize = algorithm.getBlockSize();
+        byte[] counterBlock = Arrays.copyOf(iv, blockSize);
+        addToCounter(counterBlock, first);
+        byte[] keystream = Scratch.blocks(Math.min(count, BATCH_BLOCKS) * blockSize);
+
+        for (int done = 0; done < count; done += BATCH_BLOCKS) {
+            int n = Math.min(BATCH_BLOCKS, count - done);
+            for (int b = 0; b < n; b++) {
+                System.arraycopy(counterBlock, 0, keystream, b * blockSize, blockSize);
+                incrementCounter(counterBlock);
+            }
+            algorithm.encryptBlocks(keystream, 0, keystream, 0, n);
+
+            int start = (first + done) * blockSize;
+            int len = Math.min(n * blockSize, length - start);
+            for (int j = 0; j < len; j++) {
+                out[outOff + start + j] = (byte) (in[inOff + start + j] ^ keystream[j]);
+            }
+        }
     }
 
     private void incrementCounter(byte[] counter) {
@@ -48,4 +118,62 @@ public class CtrMode implements CipherMode {
             if (counter[i] != 0) break;
         }
     }
+
+    // counter += n как big-endian число по модулю 2^(8 * длина)
+    static void addToCounter(byte[] counter, long n) {
+        long carry = n;
+        for (int i = counter.length - 1; i >= 0 && carry != 0; i--) {
+            long sum = (counter[i] & 0xff) + (carry & 0xff);
+            counter[i] = (byte) sum;
+            carry = (carry >>> 8) + (sum >>> 8);
+        }
+    }
+
+    @Override
+    public int getBlockSize() {
+        return algorithm.getBlockSize();
+    }
+
+    @Override
+    public ModeContext newContext(boolean encrypt, byte[] iv) {
+        return newContext(encrypt, iv, 0);
+    }
+
+    @Override
+    public boolean isSeekable() {
+        return true;
+    }
+
+    @Override
+    public ModeContext newContext(boolean encrypt, byte[] iv, long firstBlock) {
+        if (firstBlock < 0) throw new IllegalArgumentException("Block index must be non-negative");
+        int blockSize = algorithm.getBlockSize();
+        byte[] counterBlock = Arrays.copyOf(iv, blockSize);
+        addToCounter(counterBlock, firstBlock);
+        byte[] keystream = new byte[BATCH_BLOCKS * blockSize];
+
+        return new ModeContext() {
+            @Override
+            public void processBlocks(byte[] in, int inOff, byte[] out, int outOff, int blocks) {
+                for (int done = 0; done < blocks; done += BATCH_BLOCKS) {
+                    int n = Math.min(BATCH_BLOCKS, blocks - done);
+                    for (int b = 0; b < n; b++) {
+                        System.arraycopy(counterBlock, 0, keystream, b * blockSize, blockSize);
+                        incrementCounter(counterBlock);
+                    }
+                    algorithm.encryptBlocks(keystream, 0, keystream, 0, n);
+
+                    int i0 = inOff + done * blockSize, o0 = outOff + done * blockSize;
+                    for (int j = 0; j < n * blockSize; j++) out[o0 + j] = (byte) (in[i0 + j] ^ keystream[j]);
+                }
+            }
+
+            @Override
+            public void processTail(byte[] in, int inOff, byte[] out, int outOff, int len) {
+                algorithm.encryptBlock(counterBlock, 0, keystream, 0);
+                incrementCounter(counterBlock);
+                for (int j = 0; j < len; j++) out[outOff + j] = (byte) (in[inOff + j] ^ keystream[j]);
+            }
+        };
+    }
 }
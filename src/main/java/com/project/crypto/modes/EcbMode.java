@@ -12,33 +12,80 @@ public class EcbMode implements CipherMode {
 
     @Override
     public byte[] encrypt(byte[] data, byte[] iv) {
+        byte[] out = new byte[data.length];
+        encrypt(data, 0, out, 0, data.length, iv);
+        return out;
+    }
+
+    @Override
+    public void encrypt(byte[] in, int inOff, byte[] out, int outOff, int len, byte[] iv) {
         int bs = cipher.getBlockSize();
 
-        byte[] out = new byte[data.length];
-        byte[] buf = new byte[bs];
+        if (len % bs != 0)
+            throw new IllegalArgumentException("Data length must be a multiple of block size");
 
-        for (int off = 0; off < data.length; off += bs) {
-            System.arraycopy(data, off, buf, 0, bs);
-            byte[] c = cipher.encryptBlock(buf);
-            System.arraycopy(c, 0, out, off, bs);
-        }
+        ParallelBlocks.forEachRange(cipher, len / bs, len,
+                (first, count) -> cipher.encryptBlocks(in, inOff + first * bs, out, outOff + first * bs, count));
+    }
 
+    @Override
+    public byte[] decrypt(byte[] data, byte[] iv) {
+        byte[] out = new byte[data.length];
+        decrypt(data, 0, out, 0, data.length, iv);
         return out;
     }
 
     @Override
-    public byte[] decrypt(byte[] data, byte[] iv) {
+    public void decrypt(byte[] in, int inOff, byte[] out, int outOff, int len, byte[] iv) {
         int bs = cipher.getBlockSize();
 
-        byte[] out = new byte[data.length];
-        byte[] buf = new byte[bs];
+        if (len % bs != 0)
+            throw new IllegalArgumentException("Data length must be a multiple of block size");
+
+        ParallelBlocks.forEachRange(cipher, len / bs, len,
+                (first, count) -> cipher.decryptBlocks(in, inOff + first * bs, out, outOff + first * bs, count));
+    }
 
-        for (int off = 0; off < data.length; off += bs) {
-            System.arraycopy(data, off, buf, 0, bs);
-            byte[] d = cipher.decryptBlock(buf);
-            System.arraycopy(d, 0, out, off, bs);
-        }
+    // блоки всех сообщений независимы: вся пачка - один вызов encrypt
+    @Override
+    public void encryptBatch(byte[] buf, int[] offsets, byte[][] ivs) {
+        checkAligned(offsets, ivs.length);
+        int n = ivs.length;
+        encrypt(buf, offsets[0], buf, offsets[0], offsets[n] - offsets[0], null);
+    }
 
-        return out;
+    @Override
+    public void decryptBatch(byte[] in, byte[] out, int[] offsets, byte[][] ivs) {
+        checkAligned(offsets, ivs.length);
+        int n = ivs.length;
+        decrypt(in, offsets[0], out, offsets[0], offsets[n] - offsets[0], null);
+    }
+
+    private void checkAligned(int[] offsets, int n) {
+        int bs = cipher.getBlockSize();
+        for (int i = 0; i < n; i++)
+            if ((offsets[i + 1] - offsets[i]) % bs != 0)
+                throw new IllegalArgumentException("Data length must be a multiple of block size");
+    }
+
+    @Override
+    public int getBlockSize() {
+        return cipher.getBlockSize();
+    }
+
+    @Override
+    public ModeContext newContext(boolean encrypt, byte[] iv) {
+        return encrypt ? cipher::encryptBlocks : cipher::decryptBlocks;
+    }
+
+    // блоки независимы: позиция в потоке не важна
+    @Override
+    public boolean isSeekable() {
+        return true;
+    }
+
+    @Override
+    public ModeContext newContext(boolean encrypt, byte[] iv, long firstBlock) {
+        return newContext(encrypt, iv);
     }
 }
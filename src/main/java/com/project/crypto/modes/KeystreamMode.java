@@ -0,0 +1,14 @@
+package com.project.crypto.modes;
+
+import java.util.Arrays;
+
+// Режимы, где encrypt(data, iv) == data XOR keystream(iv), а keystream не зависит
+// от данных (OFB, CTR): его можно посчитать заранее, см. KeystreamPool.
+public interface KeystreamMode extends CipherMode {
+
+    // первые blocks блоков keystream для iv
+    default void keystream(byte[] iv, byte[] out, int outOff, int blocks) {
+        Arrays.fill(out, outOff, outOff + blocks * getBlockSize(), (byte) 0);
+        newContext(true, iv).processBlocks(out, outOff, out, outOff, blocks);
+    }
+}
@@ -0,0 +1,14 @@
+package com.project.crypto.modes;
+
+// Потоковое состояние режима: цепочка (предыдущий блок, keystream, счётчик)
+// переносится между вызовами. in и out могут совпадать (обработка на месте).
+public interface ModeContext {
+
+    // blocks целых блоков подряд
+    void processBlocks(byte[] in, int inOff, byte[] out, int outOff, int blocks);
+
+    // завершающий неполный блок, 0 < len < размер блока
+    default void processTail(byte[] in, int inOff, byte[] out, int outOff, int len) {
+        throw new IllegalArgumentException("Data length must be a multiple of block size");
+    }
+}
@@ -1,11 +1,10 @@
 package com.project.crypto.modes;
 
 import com.project.crypto.ciphers.Algorithm;
-import com.project.crypto.util.Bytes;
 
 import java.util.Arrays;
 
-public class OfbMode implements CipherMode {
+public class OfbMode implements KeystreamMode {
 
     private final Algorithm cipher;
 
@@ -13,28 +12,64 @@ public class OfbMode implements CipherMode {
         this.cipher = cipher;
     }
 
-    public byte[] encrypt(byte[] text, byte[] iv) {
-        int blockSize = cipher.getBlockSize();
-        byte[] result = new byte[text.length];
-        byte[] feedback = Arrays.copyOf(iv, iv.length);
-
-        for (int i = 0; i < text.length; i += blockSize) {
-            byte[] keystream = cipher.encryptBlock(feedback);
-            int blockLen = Math.min(blockSize, text.length - i);
+    @Override
+    public byte[] encrypt(byte[] data, byte[] iv) {
+        byte[] out = new byte[data.length];
+        encrypt(data, 0, out, 0, data.length, iv);
+        return out;
+    }
 
-            byte[] partialKey = Arrays.copyOf(keystream, blockLen);
-            byte[] block = Arrays.copyOfRange(text, i, i + blockLen);
+    @Override
+    public void encrypt(byte[] in, int inOff, byte[] out, int outOff, int len, byte[] iv) {
+        int blockSize = cipher.getBlockSize();
+        byte[] keystream = Arrays.copyOf(iv, blockSize);
 
-            byte[] encryptedBlock = Bytes.xor(block, partialKey);
+        for (int i = 0; i < len; i += blockSize) {
+            // обратная связь: keystream шифруется на месте
+            cipher.encryptBlock(keystream, 0, keystream, 0);
+            int blockLen = Math.min(blockSize, len - i);
 
-            System.arraycopy(encryptedBlock, 0, result, i, blockLen);
-            feedback = keystream;
+            for (int j = 0; j < blockLen; j++) {
+                out[outOff + i + j] = (byte) (in[inOff + i + j] ^ keystream[j]);
+            }
         }
-
-        return result;
     }
 
+    @Override
     public byte[] decrypt(byte[] cipherText, byte[] iv) {
         return encrypt(cipherText, iv);
     }
+
+    @Override
+    public void decrypt(byte[] in, int inOff, byte[] out, int outOff, int len, byte[] iv) {
+        encrypt(in, inOff, out, outOff, len, iv);
+    }
+
+    @Override
+    public int getBlockSize() {
+        return cipher.getBlockSize();
+    }
+
+    @Override
+    public ModeContext newContext(boolean encrypt, byte[] iv) {
+        int blockSize = cipher.getBlockSize();
+        byte[] keystream = Arrays.copyOf(iv, blockSize);
+
+        return new ModeContext() {
+            @Override
+            public void processBlocks(byte[] in, int inOff, byte[] out, int outOff, int blocks) {
+                for (int b = 0; b < blocks; b++) {
+                    cipher.encryptBlock(keystream, 0, keystream, 0);
+                    int i0 = inOff + b * blockSize, o0 = outOff + b * blockSize;
+                    for (int j = 0; j < blockSize; j++) out[o0 + j] = (byte) (in[i0 + j] ^ keystream[j]);
+                }
+            }
+
+            @Override
+            public void processTail(byte[] in, int inOff, byte[] out, int outOff, int len) {
+                cipher.encryptBlock(keystream, 0, keystream, 0);
+                for (int j = 0; j < len; j++) out[outOff + j] = (byte) (in[inOff + j] ^ keystream[j]);
+            }
+        };
+    }
 }
@@ -0,0 +1,95 @@
+package com.project.crypto.modes;
+
+import com.project.crypto.ciphers.Algorithm;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+// Общий fork/join пул для режимов, у которых блоки можно считать независимо.
+// Данные короче порога обрабатываются в вызывающем потоке. Порог свой у каждого
+// класса движка: чем дороже блок, тем раньше окупается распараллеливание
+// (его подбирает EngineRegistry.calibrate); для остальных действует общий порог.
+public final class ParallelBlocks {
+
+    private static final int MIN_CHUNK_BLOCKS = 4096;
+
+    private static final ForkJoinPool POOL =
+            new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+
+    // на одноядерной машине распараллеливать нечего
+    private static volatile int threshold =
+            POOL.getParallelism() > 1 ? 1 << 20 : Integer.MAX_VALUE;
+    private static final Map<Class<?>, Integer> ENGINE_THRESHOLDS = new ConcurrentHashMap<>();
+
+    private ParallelBlocks() {}
+
+    public static int getThreshold() {
+        return threshold;
+    }
+
+    public static void setThreshold(int bytes) {
+        if (bytes < 0) throw new IllegalArgumentException("Threshold must be non-negative");
+        threshold = bytes;
+    }
+
+    public static int getThreshold(Class<? extends Algorithm> engine) {
+        return ENGINE_THRESHOLDS.getOrDefault(engine, threshold);
+    }
+
+    public static void setThreshold(Class<? extends Algorithm> engine, int bytes) {
+        if (bytes < 0) throw new IllegalArgumentException("Threshold must be non-negative");
+        ENGINE_THRESHOLDS.put(engine, bytes);
+    }
+
+    // движок снова работает по общему порогу
+    public static void clearThreshold(Class<? extends Algorithm> engine) {
+        ENGINE_THRESHOLDS.remove(engine);
+    }
+
+    public static int getParallelism() {
+        return POOL.getParallelism();
+    }
+
+    interface RangeTask {
+        // блоки [first, first + count)
+        void run(int first, int count);
+    }
+
+    static void forEachRange(Algorithm engine, int blocks, int bytes, RangeTask task) {
+        if (blocks <= MIN_CHUNK_BLOCKS || bytes < getThreshold(engine.getClass())) {
+            task.run(0, blocks);
+            return;
+        }
+        int chunk = Math.max(MIN_CHUNK_BLOCKS, (blocks + 4 * POOL.getParallelism() - 1) / (4 * POOL.getParallelism()));
+        POOL.invoke(new Split(task, 0, blocks, chunk));
+    }
+
+    private static final class Split extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final RangeTask task;
+        private final int from;
+        private final int to;
+        private final int chunk;
+
+        Split(RangeTask task, int from, int to, int chunk) {
+            this.task = task;
+            this.from = from;
+            this.to = to;
+            this.chunk = chunk;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= chunk) {
+                task.run(from, to - from);
+                return;
+            }
+            int mid = from + ((to - from) / 2 / chunk) * chunk;
+            if (mid == from) mid = from + chunk;
+            invokeAll(new Split(task, from, mid, chunk), new Split(task, mid, to, chunk));
+        }
+    }
+}
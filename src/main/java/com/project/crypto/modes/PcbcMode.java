@@ -1,7 +1,6 @@
 package com.project.crypto.modes;
 
 import com.project.crypto.ciphers.Algorithm;
-import com.project.crypto.util.Bytes;
 
 import java.util.Arrays;
 
@@ -15,39 +14,84 @@ public class PcbcMode implements CipherMode {
 
     @Override
     public byte[] encrypt(byte[] data, byte[] iv) {
+        byte[] out = new byte[data.length];
+        encrypt(data, 0, out, 0, data.length, iv);
+        return out;
+    }
+
+    // P[i] запоминается до записи C[i], поэтому in и out могут совпадать
+    @Override
+    public void encrypt(byte[] in, int inOff, byte[] out, int outOff, int len, byte[] iv) {
         int blockSize = algorithm.getBlockSize();
-        int blocksCount = data.length / blockSize;
-        byte[] result = new byte[data.length];
-        byte[] prevBlock = Arrays.copyOf(iv, iv.length);
+        int blocksCount = len / blockSize;
+        byte[] prevBlock = Arrays.copyOf(iv, blockSize);
+        byte[] plain = new byte[blockSize];
 
         for (int i = 0; i < blocksCount; i++) {
-            int idx = i * blockSize;
-            byte[] block = Arrays.copyOfRange(data, idx, idx + blockSize);
-            byte[] xored = Bytes.xor(block, prevBlock);
-            byte[] encrypted = algorithm.encryptBlock(xored);
-            System.arraycopy(encrypted, 0, result, idx, blockSize);
-            prevBlock = Bytes.xor(block, encrypted);
+            int src = inOff + i * blockSize, dst = outOff + i * blockSize;
+            System.arraycopy(in, src, plain, 0, blockSize);
+            for (int j = 0; j < blockSize; j++) out[dst + j] = (byte) (plain[j] ^ prevBlock[j]);
+            algorithm.encryptBlock(out, dst, out, dst);
+            for (int j = 0; j < blockSize; j++) prevBlock[j] = (byte) (plain[j] ^ out[dst + j]);
         }
-
-        return result;
     }
 
     @Override
     public byte[] decrypt(byte[] data, byte[] iv) {
+        byte[] out = new byte[data.length];
+        decrypt(data, 0, out, 0, data.length, iv);
+        return out;
+    }
+
+    @Override
+    public void decrypt(byte[] in, int inOff, byte[] out, int outOff, int len, byte[] iv) {
         int blockSize = algorithm.getBlockSize();
-        int blocksCount = data.length / blockSize;
-        byte[] result = new byte[data.length];
-        byte[] prevBlock = Arrays.copyOf(iv, iv.length);
+        int blocksCount = len / blockSize;
+        byte[] prevBlock = Arrays.copyOf(iv, blockSize);
 
         for (int i = 0; i < blocksCount; i++) {
-            int idx = i * blockSize;
-            byte[] block = Arrays.copyOfRange(data, idx, idx + blockSize);
-            byte[] decrypted = algorithm.decryptBlock(block);
-            byte[] plain = Bytes.xor(decrypted, prevBlock);
-            System.arraycopy(plain, 0, result, idx, blockSize);
-            prevBlock = Bytes.xor(block, plain);
+            int src = inOff + i * blockSize, dst = outOff + i * blockSize;
+            algorithm.decryptBlock(in, src, out, dst);
+            for (int j = 0; j < blockSize; j++) {
+                out[dst + j] ^= prevBlock[j];
+                prevBlock[j] = (byte) (in[src + j] ^ out[dst + j]);
+            }
         }
+    }
+
+    @Override
+    public int getBlockSize() {
+        return algorithm.getBlockSize();
+    }
+
+    @Override
+    public ModeContext newContext(boolean encrypt, byte[] iv) {
+        int blockSize = algorithm.getBlockSize();
+        byte[] prevBlock = Arrays.copyOf(iv, blockSize);
+        byte[] block = new byte[blockSize];
+
+        return new ModeContext() {
+            @Override
+            public void processBlocks(byte[] in, int inOff, byte[] out, int outOff, int blocks) {
+                for (int b = 0; b < blocks; b++) {
+                    int i0 = inOff + b * blockSize, o0 = outOff + b * blockSize;
+                    System.arraycopy(in, i0, block, 0, blockSize);
+                    if (encrypt) {
+                        for (int j = 0; j < blockSize; j++) out[o0 + j] = (byte) (block[j] ^ prevBlock[j]);
+                        algorithm.encryptBlock(out, o0, out, o0);
+                    } else {
+                        algorithm.decryptBlock(block, 0, out, o0);
+                        for (int j = 0; j < blockSize; j++) out[o0 + j] ^= prevBlock[j];
+                    }
+                    for (int j = 0; j < blockSize; j++) prevBlock[j] = (byte) (block[j] ^ out[o0 + j]);
+                }
+            }
 
-        return result;
+            // как и в encrypt/decrypt, неполный хвост не обрабатывается
+            @Override
+            public void processTail(byte[] in, int inOff, byte[] out, int outOff, int len) {
+                Arrays.fill(out, outOff, outOff + len, (byte) 0);
+            }
+        };
     }
 }
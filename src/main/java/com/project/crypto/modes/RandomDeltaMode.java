@@ -1,13 +1,14 @@
 package com.project.crypto.modes;
 
 import com.project.crypto.ciphers.Algorithm;
-import com.project.crypto.util.Bytes;
-
-import java.math.BigInteger;
-import java.util.Arrays;
 
+// IV = initial || delta (по 8 байт, big-endian); блок i маскируется 128-битным
+// числом initial + delta * i. Число хранится парой long (hi, lo) и растёт на delta
+// от блока к блоку, а начало любого куска считается напрямую (deltaAt).
 public class RandomDeltaMode implements CipherMode {
 
+    private static final int BATCH_BLOCKS = 256;
+
     private final Algorithm algorithm;
 
     public RandomDeltaMode(Algorithm algorithm) {
@@ -16,55 +17,185 @@ public class RandomDeltaMode implements CipherMode {
 
     @Override
     public byte[] encrypt(byte[] data, byte[] iv) {
-        int blockSize = algorithm.getBlockSize();
         byte[] result = new byte[data.length];
+        encrypt(data, 0, result, 0, data.length, iv);
+        return result;
+    }
 
-        BigInteger initial = Bytes.fromUnsigned(Arrays.copyOfRange(iv, 0, blockSize / 2));
-        BigInteger delta   = Bytes.fromUnsigned(Arrays.copyOfRange(iv, blockSize / 2, blockSize));
+    @Override
+    public void encrypt(byte[] in, int inOff, byte[] out, int outOff, int len, byte[] iv) {
+        int blockSize = algorithm.getBlockSize();
+        long initial = beToLong(iv, 0);
+        long delta   = beToLong(iv, blockSize / 2);
 
-        int blocksCount = (int) Math.ceil((double) data.length / blockSize);
+        int blocksCount = (len + blockSize - 1) / blockSize;
+        ParallelBlocks.forEachRange(algorithm, blocksCount, len,
+                (first, count) -> encryptRange(in, inOff, len, initial, delta, out, outOff, first, count));
+    }
 
-        for (int i = 0; i < blocksCount; i++) {
-            int idx = i * blockSize;
-            int remaining = Math.min(blockSize, data.length - idx);
-            byte[] block = Arrays.copyOfRange(data, idx, idx + remaining);
+    @Override
+    public byte[] decrypt(byte[] data, byte[] iv) {
+        byte[] result = new byte[data.length];
+        decrypt(data, 0, result, 0, data.length, iv);
+        return result;
+    }
 
-            BigInteger current = initial.add(delta.multiply(BigInteger.valueOf(i)));
-            byte[] deltaBytes = Bytes.toFixed(current, blockSize);
+    @Override
+    public void decrypt(byte[] in, int inOff, byte[] out, int outOff, int len, byte[] iv) {
+        int blockSize = algorithm.getBlockSize();
+        long initial = beToLong(iv, 0);
+        long delta   = beToLong(iv, blockSize / 2);
 
-            byte[] xored = Bytes.xor(block, Arrays.copyOf(deltaBytes, remaining));
-            byte[] encrypted = algorithm.encryptBlock(Arrays.copyOf(xored, blockSize));
+        int blocksCount = (len + blockSize - 1) / blockSize;
+        ParallelBlocks.forEachRange(algorithm, blocksCount, len,
+                (first, count) -> decryptRange(in, inOff, len, initial, delta, out, outOff, first, count));
+    }
 
-            System.arraycopy(encrypted, 0, result, idx, remaining);
+    private void encryptRange(byte[] in, int inOff, int length, long initial, long delta,
+                              byte[] out, int outOff, int first, int count) {
+        int blockSize = algorithm.getBlockSize();
+        long[] d = deltaAt(initial, delta, first);
+        long hi = d[0], lo = d[1];
+
+        int end = first + count;
+        int full = Math.min(end, length / blockSize);
+        for (int i = first; i < full; ) {
+            int n = Math.min(BATCH_BLOCKS, full - i);
+            int start = i * blockSize;
+            for (int b = 0; b < n; b++) {
+                int off = start + b * blockSize;
+                xorDelta(in, inOff + off, out, outOff + off, hi, lo, blockSize);
+                lo += delta;
+                if (Long.compareUnsigned(lo, delta) < 0) hi++;
+            }
+            algorithm.encryptBlocks(out, outOff + start, out, outOff + start, n);
+            i += n;
         }
 
-        return result;
+        if (end > full) {
+            // неполный блок: в результат попадают только первые remaining байт
+            int idx = full * blockSize;
+            int remaining = length - idx;
+            byte[] buf = new byte[blockSize];
+            xorDelta(in, inOff + idx, buf, 0, hi, lo, remaining);
+            algorithm.encryptBlock(buf, 0, buf, 0);
+            System.arraycopy(buf, 0, out, outOff + idx, remaining);
+        }
     }
 
-    @Override
-    public byte[] decrypt(byte[] data, byte[] iv) {
+    private void decryptRange(byte[] in, int inOff, int length, long initial, long delta,
+                              byte[] out, int outOff, int first, int count) {
         int blockSize = algorithm.getBlockSize();
-        byte[] result = new byte[data.length];
+        long[] d = deltaAt(initial, delta, first);
+        long hi = d[0], lo = d[1];
+
+        int end = first + count;
+        int full = Math.min(end, length / blockSize);
+        for (int i = first; i < full; ) {
+            int n = Math.min(BATCH_BLOCKS, full - i);
+            int start = i * blockSize;
+            algorithm.decryptBlocks(in, inOff + start, out, outOff + start, n);
+            for (int b = 0; b < n; b++) {
+                int off = outOff + start + b * blockSize;
+                xorDelta(out, off, out, off, hi, lo, blockSize);
+                lo += delta;
+                if (Long.compareUnsigned(lo, delta) < 0) hi++;
+            }
+            i += n;
+        }
+
+        if (end > full) {
+            int idx = full * blockSize;
+            int remaining = length - idx;
+            byte[] buf = new byte[blockSize];
+            System.arraycopy(in, inOff + idx, buf, 0, remaining);
+            algorithm.decryptBlock(buf, 0, buf, 0);
+            xorDelta(buf, 0, out, outOff + idx, hi, lo, remaining);
+        }
+    }
 
-        BigInteger initial = Bytes.fromUnsigned(Arrays.copyOfRange(iv, 0, blockSize / 2));
-        BigInteger delta   = Bytes.fromUnsigned(Arrays.copyOfRange(iv, blockSize / 2, blockSize));
+    // initial + delta * index по модулю 2^128 как {hi, lo}
+    static long[] deltaAt(long initial, long delta, long index) {
+        long lo = delta * index;
+        long hi = Math.multiplyHigh(delta, index) + ((delta >> 63) & index);
+        long sum = lo + initial;
+        if (Long.compareUnsigned(sum, initial) < 0) hi++;
+        return new long[]{hi, sum};
+    }
 
-        int blocksCount = (int) Math.ceil((double) data.length / blockSize);
+    // dst = src ^ первые len байт big-endian записи (hi, lo)
+    private static void xorDelta(byte[] src, int srcOff, byte[] dst, int dstOff, long hi, long lo, int len) {
+        for (int j = 0; j < len; j++) {
+            long word = (j < 8) ? hi : lo;
+            byte mask = (byte) (word >>> (56 - 8 * (j & 7)));
+            dst[dstOff + j] = (byte) (src[srcOff + j] ^ mask);
+        }
+    }
 
-        for (int i = 0; i < blocksCount; i++) {
-            int idx = i * blockSize;
-            int remaining = Math.min(blockSize, data.length - idx);
-            byte[] block = Arrays.copyOfRange(data, idx, idx + remaining);
+    private static long beToLong(byte[] b, int off) {
+        long v = 0;
+        for (int i = 0; i < 8; i++) v = (v << 8) | (b[off + i] & 0xff);
+        return v;
+    }
 
-            BigInteger current = initial.add(delta.multiply(BigInteger.valueOf(i)));
-            byte[] deltaBytes = Bytes.toFixed(current, blockSize);
+    @Override
+    public int getBlockSize() {
+        return algorithm.getBlockSize();
+    }
 
-            byte[] decryptedBlock = algorithm.decryptBlock(Arrays.copyOf(block, blockSize));
-            byte[] plain = Bytes.xor(decryptedBlock, Arrays.copyOf(deltaBytes, remaining));
+    @Override
+    public ModeContext newContext(boolean encrypt, byte[] iv) {
+        return newContext(encrypt, iv, 0);
+    }
 
-            System.arraycopy(plain, 0, result, idx, remaining);
-        }
+    @Override
+    public boolean isSeekable() {
+        return true;
+    }
 
-        return result;
+    @Override
+    public ModeContext newContext(boolean encrypt, byte[] iv, long firstBlock) {
+        if (firstBlock < 0) throw new IllegalArgumentException("Block index must be non-negative");
+        int blockSize = algorithm.getBlockSize();
+        long initial = beToLong(iv, 0);
+        long delta   = beToLong(iv, blockSize / 2);
+        long[] start = deltaAt(initial, delta, firstBlock);
+
+        return new ModeContext() {
+            private long hi = start[0], lo = start[1];
+
+            @Override
+            public void processBlocks(byte[] in, int inOff, byte[] out, int outOff, int blocks) {
+                for (int done = 0; done < blocks; done += BATCH_BLOCKS) {
+                    int n = Math.min(BATCH_BLOCKS, blocks - done);
+                    int i0 = inOff + done * blockSize, o0 = outOff + done * blockSize;
+                    if (!encrypt) algorithm.decryptBlocks(in, i0, out, o0, n);
+                    for (int b = 0; b < n; b++) {
+                        int off = b * blockSize;
+                        if (encrypt)
+                            xorDelta(in, i0 + off, out, o0 + off, hi, lo, blockSize);
+                        else
+                            xorDelta(out, o0 + off, out, o0 + off, hi, lo, blockSize);
+                        lo += delta;
+                        if (Long.compareUnsigned(lo, delta) < 0) hi++;
+                    }
+                    if (encrypt) algorithm.encryptBlocks(out, o0, out, o0, n);
+                }
+            }
+
+            @Override
+            public void processTail(byte[] in, int inOff, byte[] out, int outOff, int len) {
+                byte[] buf = new byte[blockSize];
+                if (encrypt) {
+                    xorDelta(in, inOff, buf, 0, hi, lo, len);
+                    algorithm.encryptBlock(buf, 0, buf, 0);
+                    System.arraycopy(buf, 0, out, outOff, len);
+                } else {
+                    System.arraycopy(in, inOff, buf, 0, len);
+                    algorithm.decryptBlock(buf, 0, buf, 0);
+                    xorDelta(buf, 0, out, outOff, hi, lo, len);
+                }
+            }
+        };
     }
 }
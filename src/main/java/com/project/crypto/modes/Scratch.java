@@ -0,0 +1,18 @@
+package com.project.crypto.modes;
+
+// Временные буферы режимов на поток: keystream/линии для encryptBlocks не аллоцируются
+// на каждый вызов. Буфер нельзя держать дольше одного вызова и передавать наружу;
+// вложенных вызовов режимов внутри одного потока при его использовании нет.
+final class Scratch {
+
+    // BATCH_BLOCKS блоков по 32 байта - с запасом для 16-байтных шифров
+    static final int MAX = 256 * 32;
+
+    private static final ThreadLocal<byte[]> BLOCKS = ThreadLocal.withInitial(() -> new byte[MAX]);
+
+    private Scratch() {}
+
+    static byte[] blocks(int size) {
+        return (size <= MAX) ? BLOCKS.get() : new byte[size];
+    }
+}
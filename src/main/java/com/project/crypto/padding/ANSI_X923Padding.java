@@ -5,36 +5,33 @@ import java.util.Arrays;
 public class ANSI_X923Padding implements Padding {
 
     @Override
-    public byte[] pad(byte[] data, int blockSize) {
-        int paddingLength = blockSize - (data.length % blockSize);
-        if (paddingLength == 0) {
-            paddingLength = blockSize;
-        }
-
-        byte[] padded = new byte[data.length + paddingLength];
-        System.arraycopy(data, 0, padded, 0, data.length);
+    public int padInPlace(byte[] buf, int off, int dataLength, int blockSize) {
+        int total = paddedLength(dataLength, blockSize);
+        int paddingLength = total - dataLength;
 
-        padded[padded.length - 1] = (byte) paddingLength;
-        return padded;
+        Arrays.fill(buf, off + dataLength, off + total - 1, (byte) 0);
+        buf[off + total - 1] = (byte) paddingLength;
+        return total;
     }
 
     @Override
-    public byte[] unpad(byte[] data) {
-        if (data.length == 0) {
+    public int unpaddedLength(byte[] buf, int off, int length) {
+        if (length == 0) {
             throw new IllegalArgumentException("Data is empty");
         }
 
-        int paddingLength = data[data.length - 1] & 0xFF;
-        if (paddingLength <= 0 || paddingLength > data.length) {
+        int end = off + length;
+        int paddingLength = buf[end - 1] & 0xFF;
+        if (paddingLength <= 0 || paddingLength > length) {
             throw new IllegalArgumentException("Invalid padding length");
         }
 
-        for (int i = data.length - paddingLength; i < data.length - 1; i++) {
-            if (data[i] != 0) {
+        for (int i = end - paddingLength; i < end - 1; i++) {
+            if (buf[i] != 0) {
                 throw new IllegalArgumentException("Invalid ANSI X.923 padding");
             }
         }
 
-        return Arrays.copyOf(data, data.length - paddingLength);
+        return length - paddingLength;
     }
 }
@@ -1,34 +1,30 @@
 package com.project.crypto.padding;
 
-import java.util.Arrays;
-import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
 
 public class ISO_10126Padding implements Padding {
 
     @Override
-    public byte[] pad(byte[] data, int blockSize) {
-        Random random = new Random();
-        int remainder = data.length % blockSize;
-        int paddingLength = (remainder == 0) ? blockSize : (blockSize - remainder);
-
-        byte[] result = new byte[data.length + paddingLength];
-        System.arraycopy(data, 0, result, 0, data.length);
-
-        byte[] randomBytes = new byte[paddingLength - 1];
-        random.nextBytes(randomBytes);
-        System.arraycopy(randomBytes, 0, result, data.length, randomBytes.length);
-
-        result[result.length - 1] = (byte) paddingLength;
+    public int padInPlace(byte[] buf, int off, int dataLength, int blockSize) {
+        int total = paddedLength(dataLength, blockSize);
+        int paddingLength = total - dataLength;
+
+        // случайные байты заполнения, без нового Random на каждый вызов
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = off + dataLength, end = off + total - 1; i < end; i++) {
+            buf[i] = (byte) random.nextInt();
+        }
 
-        return result;
+        buf[off + total - 1] = (byte) paddingLength;
+        return total;
     }
 
     @Override
-    public byte[] unpad(byte[] data) {
-        int paddingLength = data[data.length - 1] & 0xFF;
-        if (paddingLength <= 0 || paddingLength > data.length) {
+    public int unpaddedLength(byte[] buf, int off, int length) {
+        int paddingLength = buf[off + length - 1] & 0xFF;
+        if (paddingLength <= 0 || paddingLength > length) {
             throw new IllegalArgumentException("Invalid padding length: " + paddingLength);
         }
-        return Arrays.copyOf(data, data.length - paddingLength);
+        return length - paddingLength;
     }
 }
@@ -1,6 +1,33 @@
 package com.project.crypto.padding;
 
+import java.util.Arrays;
+
 public interface Padding {
-    byte[] pad(byte[] data, int blockSize);
-    byte[] unpad(byte[] data);
-}
\ No newline at end of file
+
+    // длина после паддинга: все схемы добавляют от 1 до blockSize байт
+    default int paddedLength(int dataLength, int blockSize) {
+        return (dataLength / blockSize + 1) * blockSize;
+    }
+
+    // данные уже лежат в buf[off, off + dataLength), паддинг дописывается за ними;
+    // возвращает paddedLength(dataLength, blockSize)
+    int padInPlace(byte[] buf, int off, int dataLength, int blockSize);
+
+    // длина данных без паддинга в buf[off, off + length); buf не меняется
+    int unpaddedLength(byte[] buf, int off, int length);
+
+    // то же, когда известен размер блока: паддинг не выходит за последний блок
+    default int unpaddedLength(byte[] buf, int off, int length, int blockSize) {
+        return unpaddedLength(buf, off, length);
+    }
+
+    default byte[] pad(byte[] data, int blockSize) {
+        byte[] out = Arrays.copyOf(data, paddedLength(data.length, blockSize));
+        padInPlace(out, 0, data.length, blockSize);
+        return out;
+    }
+
+    default byte[] unpad(byte[] data) {
+        return Arrays.copyOf(data, unpaddedLength(data, 0, data.length));
+    }
+}
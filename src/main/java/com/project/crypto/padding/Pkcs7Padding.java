@@ -5,18 +5,19 @@ import java.util.Arrays;
 public class Pkcs7Padding implements Padding {
 
     @Override
-    public byte[] pad(byte[] data, int blockSize) {
-        int padLen = blockSize - (data.length % blockSize);
-        if (padLen == 0) padLen = blockSize;
-        byte[] out = Arrays.copyOf(data, data.length + padLen);
-        Arrays.fill(out, data.length, out.length, (byte) padLen);
-        return out;
+    public int padInPlace(byte[] buf, int off, int dataLength, int blockSize) {
+        int total = paddedLength(dataLength, blockSize);
+        int padLen = total - dataLength;
+        Arrays.fill(buf, off + dataLength, off + total, (byte) padLen);
+        return total;
     }
 
     @Override
-    public byte[] unpad(byte[] data) {
-        int padLen = data[data.length - 1] & 0xFF;
-        int start = data.length - padLen;
-        return Arrays.copyOf(data, start);
+    public int unpaddedLength(byte[] buf, int off, int length) {
+        int padLen = buf[off + length - 1] & 0xFF;
+        if (padLen > length) {
+            throw new IllegalArgumentException("Invalid padding length: " + padLen);
+        }
+        return length - padLen;
     }
-}
\ No newline at end of file
+}
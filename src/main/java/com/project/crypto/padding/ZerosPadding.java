@@ -3,26 +3,35 @@ package com.project.crypto.padding;
 import java.util.Arrays;
 
 public class ZerosPadding implements Padding{
+
     @Override
-    public byte[] pad(byte[] data, int blockSize) {
-        int paddingLength = blockSize - (data.length % blockSize);
-        if (paddingLength == 0) {
-            paddingLength = blockSize;
-        }
+    public int padInPlace(byte[] buf, int off, int dataLength, int blockSize) {
+        int total = paddedLength(dataLength, blockSize);
+        Arrays.fill(buf, off + dataLength, off + total, (byte) 0);
+        return total;
+    }
 
-        byte[] padded = new byte[data.length + paddingLength];
-        System.arraycopy(data, 0, padded, 0, data.length);
+    // размер блока неизвестен - снимаются все хвостовые нули
+    @Override
+    public int unpaddedLength(byte[] buf, int off, int length) {
+        int i = off + length - 1;
+        while (i >= off && buf[i] == 0) {
+            i--;
+        }
 
-        return padded;
+        return i + 1 - off;
     }
 
+    // паддинг - от 1 до blockSize нулей, поэтому нули снимаются только в последнем блоке:
+    // более длинный хвост из нулей целиком паддингом быть не может
     @Override
-    public byte[] unpad(byte[] data) {
-        int i = data.length - 1;
-        while (i >= 0 && data[i] == 0) {
+    public int unpaddedLength(byte[] buf, int off, int length, int blockSize) {
+        int stop = off + Math.max(0, length - blockSize);
+        int i = off + length - 1;
+        while (i >= stop && buf[i] == 0) {
             i--;
         }
 
-        return Arrays.copyOf(data, i + 1);
+        return i + 1 - off;
     }
 }
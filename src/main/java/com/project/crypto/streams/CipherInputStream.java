@@ -0,0 +1,85 @@
+package com.project.crypto.streams;
+
+import com.project.crypto.factories.CipherContext;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+// Читает из in и отдаёт результат CipherContext (уже прошедшего init) кусками,
+// не держа в памяти весь поток.
+public class CipherInputStream extends FilterInputStream {
+
+    private static final int CHUNK = 8192;
+
+    private final CipherContext ctx;
+    private final byte[] inBuf = new byte[CHUNK];
+    private byte[] outBuf;
+    private int outPos;
+    private int outLen;
+    private boolean finished;
+
+    public CipherInputStream(InputStream in, CipherContext ctx) {
+        super(in);
+        this.ctx = ctx;
+        this.outBuf = new byte[ctx.getOutputSize(CHUNK)];
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (outPos == outLen && !fill()) return -1;
+        return outBuf[outPos++] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) return 0;
+        if (outPos == outLen && !fill()) return -1;
+        int n = Math.min(len, outLen - outPos);
+        System.arraycopy(outBuf, outPos, b, off, n);
+        outPos += n;
+        return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long skipped = 0;
+        while (skipped < n && (outPos < outLen || fill())) {
+            int step = (int) Math.min(n - skipped, outLen - outPos);
+            outPos += step;
+            skipped += step;
+        }
+        return skipped;
+    }
+
+    @Override
+    public int available() {
+        return outLen - outPos;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    private boolean fill() throws IOException {
+        while (!finished) {
+            int n = in.read(inBuf, 0, CHUNK);
+            outPos = 0;
+            if (n < 0) {
+                finished = true;
+                ensureCapacity(ctx.getOutputSize(0));
+                outLen = ctx.doFinal(outBuf, 0);
+            } else {
+                ensureCapacity(ctx.getOutputSize(n));
+                outLen = ctx.update(inBuf, 0, n, outBuf, 0);
+            }
+            if (outLen > 0) return true;
+        }
+        return false;
+    }
+
+    private void ensureCapacity(int size) {
+        if (outBuf.length < size) outBuf = new byte[size];
+    }
+}
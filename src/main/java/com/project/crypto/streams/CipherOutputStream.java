@@ -0,0 +1,60 @@
+package com.project.crypto.streams;
+
+import com.project.crypto.factories.CipherContext;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+// Пропускает записываемые данные через CipherContext (уже прошедший init) и пишет
+// результат в out; close() вызывает doFinal (паддинг) и закрывает out.
+public class CipherOutputStream extends FilterOutputStream {
+
+    private static final int CHUNK = 8192;
+
+    private final CipherContext ctx;
+    private byte[] outBuf;
+    private boolean closed;
+
+    public CipherOutputStream(OutputStream out, CipherContext ctx) {
+        super(out);
+        this.ctx = ctx;
+        this.outBuf = new byte[ctx.getOutputSize(CHUNK)];
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[]{(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        while (len > 0) {
+            int n = Math.min(len, CHUNK);
+            ensureCapacity(ctx.getOutputSize(n));
+            int written = ctx.update(b, off, n, outBuf, 0);
+            out.write(outBuf, 0, written);
+            off += n;
+            len -= n;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) return;
+        closed = true;
+        try {
+            ensureCapacity(ctx.getOutputSize(0));
+            int written = ctx.doFinal(outBuf, 0);
+            out.write(outBuf, 0, written);
+            out.flush();
+        } finally {
+            out.close();
+        }
+    }
+
+    // буфер не меньше getOutputSize: с неполным блоком в контексте выход больше CHUNK
+    private void ensureCapacity(int size) {
+        if (outBuf.length < size) outBuf = new byte[size];
+    }
+}
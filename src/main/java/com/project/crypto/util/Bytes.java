@@ -38,4 +38,14 @@ public class Bytes {
         new java.security.SecureRandom().nextBytes(r);
         return r;
     }
+
+    public static byte[] sha256(byte[]... parts) {
+        try {
+            java.security.MessageDigest md = java.security.MessageDigest.getInstance("SHA-256");
+            for (byte[] part : parts) md.update(part);
+            return md.digest();
+        } catch (java.security.NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
 }
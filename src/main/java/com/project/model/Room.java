@@ -1,5 +1,7 @@
 package com.project.model;
 
+import com.project.crypto.keyx.DhParams;
+import com.project.crypto.keyx.KeyAgreementType;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -21,6 +23,10 @@ public class Room {
     private BigInteger p;
     private BigInteger q;
     private BigInteger g;
+    // имя стандартной группы (DhGroup), если p, q, g взяты из неё; иначе null
+    private String group;
+    // DH или X25519 (KeyAgreementType); для X25519 p, q, g не нужны и равны null
+    private String keyAgreement = "DH";
 
     private Map<String, BigInteger> publicKeys = new ConcurrentHashMap<>();
 
@@ -36,6 +42,16 @@ public class Room {
         this.g = g;
     }
 
+    public Room(String id, String algorithm, String mode, String padding, DhParams params) {
+        this(id, algorithm, mode, padding, params.p, params.q, params.g);
+        this.group = params.name;
+    }
+
+    public Room(String id, String algorithm, String mode, String padding, KeyAgreementType keyAgreement) {
+        this(id, algorithm, mode, padding, null, null, null);
+        this.keyAgreement = keyAgreement.name();
+    }
+
     public void close() { this.active = false; }
 
     public void addPublicKey(String userId, BigInteger Y) {
@@ -0,0 +1,47 @@
+package com.project.service;
+
+import com.project.crypto.factories.AlgorithmType;
+import com.project.crypto.factories.EngineRegistry;
+import com.project.crypto.modes.ParallelBlocks;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/crypto")
+public class EngineController {
+    private final EngineRegistry engineRegistry;
+
+    // какие движки выбраны калибровкой и с какими порогами распараллеливания
+    @GetMapping("/engines")
+    public ResponseEntity<Map<String, Object>> engines() {
+        Map<String, Object> body = new LinkedHashMap<>();
+        for (AlgorithmType type : AlgorithmType.values()) {
+            List<Map<String, Object>> list = engineRegistry.engines(type).stream()
+                    .map(e -> {
+                        Map<String, Object> m = new LinkedHashMap<>();
+                        m.put("name", e.getName());
+                        m.put("capabilities", e.getCapabilities());
+                        m.put("verified", e.isVerified());
+                        m.put("nanosPerBlock", Double.isNaN(e.getNanosPerBlock()) ? null : e.getNanosPerBlock());
+                        m.put("parallelThreshold", e.getParallelThreshold());
+                        return m;
+                    })
+                    .toList();
+            body.put(type.name(), Map.of(
+                    "selected", engineRegistry.selected(type).getName(),
+                    "engines", list));
+        }
+        // для движков, которым калибровка не подобрала свой порог
+        body.put("defaultParallelThreshold", ParallelBlocks.getThreshold());
+        body.put("parallelism", ParallelBlocks.getParallelism());
+        return ResponseEntity.ok(body);
+    }
+}
@@ -4,6 +4,7 @@ import com.project.model.Room;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
 
 import java.math.BigInteger;
 import java.util.List;
@@ -19,9 +20,11 @@ public class RoomController {
     public ResponseEntity<Room> createRoom(
             @RequestParam String algorithm,
             @RequestParam String mode,
-            @RequestParam String padding
+            @RequestParam String padding,
+            @RequestParam(required = false) String group,
+            @RequestParam(required = false) String keyAgreement
     ) {
-        Room room = roomService.createRoom(algorithm, mode, padding);
+        Room room = roomService.createRoom(algorithm, mode, padding, group, keyAgreement);
         return ResponseEntity.ok(room);
     }
 
@@ -30,6 +33,16 @@ public class RoomController {
         return ResponseEntity.ok(roomService.listRooms());
     }
 
+    @GetMapping("/dh-pool")
+    public ResponseEntity<Map<String, Object>> dhPool() {
+        return ResponseEntity.ok(roomService.dhPoolStats());
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<Room> getRoom(@PathVariable String id) {
+        return ResponseEntity.of(roomService.findRoom(id));
+    }
+
     @PostMapping("/close/{id}")
     public ResponseEntity<String> closeRoom(@PathVariable String id) {
         boolean closed = roomService.closeRoom(id);
@@ -40,6 +53,8 @@ public class RoomController {
         }
     }
 
+    // обмен открытыми ключами двух внешних клиентов; участники из Vaadin-представлений
+    // договариваются о ключе групповым деревом и здесь не появляются
     @PostMapping("/{roomId}/submitKey")
     public ResponseEntity<String> submitKey(
             @PathVariable String roomId,
@@ -61,4 +76,26 @@ public class RoomController {
         return ResponseEntity.ok(roomService.getPublicKeys(roomId));
     }
 
+    // long-poll: ответ приходит, как только в комнате есть ключ не от userId,
+    // или по таймауту с тем, что есть на этот момент; 404 для неизвестной или закрытой комнаты
+    @GetMapping("/{roomId}/keys/await")
+    public DeferredResult<ResponseEntity<Map<String, BigInteger>>> awaitKeys(
+            @PathVariable String roomId,
+            @RequestParam String userId,
+            @RequestParam(defaultValue = "25000") long timeoutMs
+    ) {
+        DeferredResult<ResponseEntity<Map<String, BigInteger>>> result = new DeferredResult<>(
+                Math.min(Math.max(timeoutMs, 1L), 60_000L),
+                () -> ResponseEntity.ok(roomService.getPublicKeys(roomId)));
+        try {
+            Runnable unsubscribe = roomService.subscribeKeys(roomId, (uid, key) -> {
+                if (!uid.equals(userId)) result.setResult(ResponseEntity.ok(roomService.getPublicKeys(roomId)));
+            });
+            result.onCompletion(unsubscribe);
+        } catch (IllegalArgumentException e) {
+            result.setResult(ResponseEntity.notFound().build());
+        }
+        return result;
+    }
+
 }
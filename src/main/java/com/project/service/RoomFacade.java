@@ -0,0 +1,42 @@
+package com.project.service;
+
+import com.project.crypto.keyx.GroupKeyMember;
+import com.project.crypto.keyx.GroupKeyTree;
+import com.project.model.Room;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.util.Optional;
+import java.util.function.IntConsumer;
+
+// Доступ к комнатам для Vaadin-представлений: они живут в том же JVM, поэтому
+// ходят в RoomService напрямую, а не через HTTP на localhost. Ключ комнаты
+// представления получают только групповым обменом (joinGroup); обмен открытыми
+// ключами двух сторон через RoomController (submitKey, keys/await) - отдельный
+// протокол для внешних клиентов, участников-представлений он не видит.
+@Service
+@RequiredArgsConstructor
+public class RoomFacade {
+    private final RoomService roomService;
+
+    public Room create(String algorithm, String mode, String padding, String keyAgreement) {
+        return roomService.createRoom(algorithm, mode, padding, null, keyAgreement);
+    }
+
+    public Optional<Room> find(String roomId) {
+        return roomService.findRoom(roomId);
+    }
+
+    // групповой ключ комнаты; IllegalArgumentException, если комната закрыта или не существует
+    public GroupKeyTree joinGroup(String roomId, GroupKeyMember member, IntConsumer onEpoch) {
+        return roomService.joinGroup(roomId, member, onEpoch);
+    }
+
+    public boolean leaveGroup(String roomId, String memberId) {
+        return roomService.leaveGroup(roomId, memberId);
+    }
+
+    public boolean close(String roomId) {
+        return roomService.closeRoom(roomId);
+    }
+}
@@ -1,27 +1,113 @@
 package com.project.service;
 
+import com.project.crypto.factories.SuiteCache;
+import com.project.crypto.keyx.DhGroup;
 import com.project.crypto.keyx.DhParams;
+import com.project.crypto.keyx.DhParamsPool;
+import com.project.crypto.keyx.GroupKeyMember;
+import com.project.crypto.keyx.GroupKeyTree;
+import com.project.crypto.keyx.KeyAgreementType;
 import com.project.model.Room;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.math.BigInteger;
-import java.security.SecureRandom;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.function.BiConsumer;
+import java.util.function.IntConsumer;
 
+@Slf4j
 @Service
+@RequiredArgsConstructor
 public class RoomService {
     private final Map<String, Room> rooms = new ConcurrentHashMap<>();
+    // Два независимых способа договориться о ключе в одной комнате:
+    // - внешние клиенты (REST) обмениваются открытыми ключами двух сторон через
+    //   Room.publicKeys, submitPublicKey и subscribeKeys;
+    // - Vaadin-представления в этом JVM входят в групповое дерево groupKeys.
+    // Ключи у них разные: клиент REST и представление в одной комнате друг друга не читают.
+    private final Map<String, Set<BiConsumer<String, BigInteger>>> keyListeners = new ConcurrentHashMap<>();
+    private final Map<String, GroupKeyTree> groupKeys = new ConcurrentHashMap<>();
+    private final SuiteCache suiteCache;
+    private final DhParamsPool dhParamsPool;
+
+    // пусто - каждой комнате своя группа из пула
+    @Value("${crypto.dh.group:}")
+    private String defaultGroup;
 
     public Room createRoom(String algorithm, String mode, String padding) {
+        return createRoom(algorithm, mode, padding, null, null);
+    }
+
+    // keyAgreement - DH (по умолчанию) или X25519; group - имя DhGroup для DH, null берёт crypto.dh.group
+    public Room createRoom(String algorithm, String mode, String padding, String group, String keyAgreement) {
         String id = UUID.randomUUID().toString();
-        // TODO параметризовать bitLength через application.yml или увеличить
-        DhParams params = DhParams.generate(512, 40, new SecureRandom());
-        Room room = new Room(id, algorithm, mode, padding, params.p, params.q, params.g);
+        KeyAgreementType type = KeyAgreementType.fromName(keyAgreement);
+        if (type == KeyAgreementType.X25519) {
+            // параметров нет, ключи генерируют клиенты
+            Room room = new Room(id, algorithm, mode, padding, type);
+            rooms.put(id, room);
+            return room;
+        }
+
+        DhGroup named = DhGroup.fromName(group != null ? group : defaultGroup);
+        // стандартная группа общая для всех комнат, иначе своя из пула (crypto.dh.bit-length)
+        DhParams params = (named != null) ? named.params() : dhParamsPool.take();
+        Room room = new Room(id, algorithm, mode, padding, params);
         rooms.put(id, room);
         return room;
     }
 
+    public Map<String, Object> dhPoolStats() {
+        return Map.of(
+                "bitLength", dhParamsPool.getBitLength(),
+                "available", dhParamsPool.available(),
+                "taken", dhParamsPool.takenCount(),
+                "syncFallbacks", dhParamsPool.syncFallbackCount());
+    }
+
+    // вход в групповой обмен ключами активной комнаты; дерево создаётся первым участником.
+    // listener получает новые эпохи, пока участник не выйдет через leaveGroup.
+    // Возведения в степень и рассылка эпох идут вне блокировок карты: слушатели
+    // (rekey в ChatView) могут выполняться прямо в этом потоке.
+    public GroupKeyTree joinGroup(String roomId, GroupKeyMember member, IntConsumer listener) {
+        while (true) {
+            GroupKeyTree tree = groupKeys.computeIfAbsent(roomId, id -> {
+                Room room = rooms.get(id);
+                if (room == null || !room.isActive())
+                    throw new IllegalArgumentException("Комната не найдена или закрыта: " + id);
+                return new GroupKeyTree();
+            });
+            tree.join(member, listener);
+            if (groupKeys.get(roomId) == tree) return tree;
+            // дерево успели удалить (вышел последний участник или комнату закрыли):
+            // выходим из него и берём актуальное, для закрытой комнаты - IllegalArgumentException
+            tree.leave(member.getId());
+        }
+    }
+
+    public boolean leaveGroup(String roomId, String memberId) {
+        GroupKeyTree tree = groupKeys.get(roomId);
+        if (tree == null || !tree.leave(memberId)) return false;
+        // опустевшее дерево удаляется; размер проверяется атомарно с удалением, чтобы
+        // не выбросить дерево, в которое между leave и удалением кто-то вошёл
+        groupKeys.computeIfPresent(roomId, (id, t) -> (t == tree && t.size() == 0) ? null : t);
+        return true;
+    }
+
+    // дерево комнаты, если в ней есть участники
+    public Optional<GroupKeyTree> findGroup(String roomId) {
+        return Optional.ofNullable(groupKeys.get(roomId));
+    }
+
+    public Optional<Room> findRoom(String id) {
+        return Optional.ofNullable(rooms.get(id));
+    }
+
     public List<Room> listRooms() {
         return new ArrayList<>(rooms.values());
     }
@@ -30,6 +116,9 @@ public class RoomService {
         Room room = rooms.get(id);
         if (room != null && room.isActive()) {
             room.close();
+            suiteCache.invalidate(id);
+            keyListeners.remove(id);
+            groupKeys.remove(id);
             return true;
         }
         return false;
@@ -39,11 +128,44 @@ public class RoomService {
         Room room = rooms.get(roomId);
         if (room != null && room.isActive()) {
             room.addPublicKey(userId, Y);
+            notifyKey(roomId, userId, Y);
             return true;
         }
         return false;
     }
 
+    // listener сразу получает уже присланные ключи, затем каждый новый в потоке,
+    // который его прислал. Один и тот же ключ может прийти дважды, если он появился
+    // во время подписки. Возвращённый Runnable отписывает; набор подписчиков комнаты
+    // удаляется вместе с последним из них.
+    public Runnable subscribeKeys(String roomId, BiConsumer<String, BigInteger> listener) {
+        keyListeners.compute(roomId, (id, set) -> {
+            Room room = rooms.get(id);
+            if (room == null || !room.isActive())
+                throw new IllegalArgumentException("Комната не найдена или закрыта: " + id);
+            if (set == null) set = new CopyOnWriteArraySet<>();
+            set.add(listener);
+            return set;
+        });
+        getPublicKeys(roomId).forEach(listener);
+        return () -> keyListeners.computeIfPresent(roomId, (id, set) -> {
+            set.remove(listener);
+            return set.isEmpty() ? null : set;
+        });
+    }
+
+    private void notifyKey(String roomId, String userId, BigInteger Y) {
+        Set<BiConsumer<String, BigInteger>> set = keyListeners.get(roomId);
+        if (set == null) return;
+        for (BiConsumer<String, BigInteger> listener : set) {
+            try {
+                listener.accept(userId, Y);
+            } catch (RuntimeException e) {
+                log.warn("key listener failed for room {}", roomId, e);
+            }
+        }
+    }
+
     public Map<String, BigInteger> getPublicKeys(String roomId) {
         Room room = rooms.get(roomId);
         return (room != null) ? room.getPublicKeys() : Map.of();
@@ -1,11 +1,19 @@
 package com.project.vaadin;
 
 import com.project.crypto.factories.*;
+import com.project.crypto.keyx.DhGroup;
 import com.project.crypto.keyx.DhParams;
 import com.project.crypto.keyx.DiffieHellman;
-import com.project.crypto.util.Bytes;
+import com.project.crypto.keyx.GroupKeyMember;
+import com.project.crypto.keyx.GroupKeyTree;
+import com.project.crypto.keyx.KeyAgreement;
+import com.project.crypto.keyx.KeyAgreementType;
+import com.project.crypto.keyx.X25519;
+import com.project.crypto.streams.CipherInputStream;
+import com.project.crypto.streams.CipherOutputStream;
 import com.project.model.ChatFileMessage;
 import com.project.model.Room;
+import com.project.service.RoomFacade;
 import com.vaadin.flow.component.*;
 import com.vaadin.flow.component.button.Button;
 import com.vaadin.flow.component.button.ButtonVariant;
@@ -26,7 +34,7 @@ import com.vaadin.flow.component.page.Push;
 import com.vaadin.flow.component.progressbar.ProgressBar;
 import com.vaadin.flow.component.upload.ProgressUpdateEvent;
 import com.vaadin.flow.component.upload.Upload;
-import com.vaadin.flow.component.upload.receivers.MemoryBuffer;
+import com.vaadin.flow.component.upload.Receiver;
 import com.vaadin.flow.dom.Style;
 import com.vaadin.flow.router.*;
 import com.vaadin.flow.server.StreamResource;
@@ -36,12 +44,12 @@ import com.vaadin.flow.shared.ui.Transport;
 import elemental.json.Json;
 import elemental.json.JsonObject;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.web.client.RestTemplate;
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.math.BigInteger;
+import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
 import java.security.SecureRandom;
 import java.time.Instant;
@@ -65,8 +73,11 @@ public class ChatView extends Composite<VerticalLayout> /*implements BeforeEnter
         final byte[] ciphertext;
         final String fileName;
         final String mimeType;
+        // ключ эпохи, в которой файл зашифрован
+        final CryptoSuite suite;
 
-        EncryptedFile(byte[] iv, byte[] ciphertext, String fileName, String mimeType) {
+        EncryptedFile(byte[] iv, byte[] ciphertext, String fileName, String mimeType, CryptoSuite suite) {
+            this.suite = suite;
             this.iv = iv;
             this.ciphertext = ciphertext;
             this.fileName = fileName;
@@ -81,20 +92,30 @@ public class ChatView extends Composite<VerticalLayout> /*implements BeforeEnter
     private String dialogId;
     private String userId;
     private final VerticalLayout messagesLayout = new VerticalLayout();
-    private final RestTemplate rest = new RestTemplate();
 
-    private DiffieHellman dh;
-    private byte[] privateKey;
+    // групповой ключ комнаты: один на всех участников, меняется при каждом входе и выходе
+    private GroupKeyTree groupKeys;
+    private GroupKeyMember member;
     private byte[] sharedKey;
+    private int epoch = -1;
 
     private CryptoSuite suite;
+    // ключи нескольких последних эпох: сообщения, отправленные до смены ключа, ещё в пути
+    private final Map<Integer, CryptoSuite> recentSuites = new LinkedHashMap<>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, CryptoSuite> eldest) {
+            return size() > 4;
+        }
+    };
+    private KeystreamPool keystreams; // только для OFB/CTR
+    private final SuiteCache suiteCache;
+    private final RoomFacade rooms;
     private final SecureRandom rng = new SecureRandom();
 
     private String algorithm;
     private String mode;
     private String padding;
 
-    private Timer keyPoller;
     private final List<Runnable> pendingDecrypt = new ArrayList<>();
     private volatile boolean cryptoReady = false;
 
@@ -104,7 +125,9 @@ public class ChatView extends Composite<VerticalLayout> /*implements BeforeEnter
     private final MessageInput messageInputRef;
     private final Upload uploadRef;
 
-    public ChatView() {
+    public ChatView(SuiteCache suiteCache, RoomFacade rooms) {
+        this.suiteCache = suiteCache;
+        this.rooms = rooms;
         Object saved = VaadinSession.getCurrent().getAttribute("username");
         username = saved != null ? saved.toString() : "Anonymous";
 
@@ -114,8 +137,8 @@ public class ChatView extends Composite<VerticalLayout> /*implements BeforeEnter
         messageInput.addSubmitListener(event -> sendTextMessage(username, event.getValue()));
 
         // загрузка файлов
-        MemoryBuffer buffer = new MemoryBuffer();
-        Upload upload = new Upload(buffer);
+        EncryptingReceiver receiver = new EncryptingReceiver();
+        Upload upload = new Upload(receiver);
         Button uploadBtn = new Button("📎 Прикрепить файл");
         upload.setUploadButton(uploadBtn);
 
@@ -156,7 +179,7 @@ public class ChatView extends Composite<VerticalLayout> /*implements BeforeEnter
         });
 
         upload.addSucceededListener(e -> {
-            onFileUpload(buffer);
+            onFileUpload(receiver);
             uploadProgress.setVisible(false);
             uploadStatus.setText("Файл загружен: " + e.getFileName());
         });
@@ -203,28 +226,52 @@ public class ChatView extends Composite<VerticalLayout> /*implements BeforeEnter
 
     // ---------- Загрузка файла ----------
 
-    private void onFileUpload(MemoryBuffer buffer) {
-        String fileName = buffer.getFileData().getFileName();
-        String mimeType = buffer.getFileData() != null
-                ? buffer.getFileData().getMimeType()
-                : "application/octet-stream";
+    // Приёмник загрузки: файл шифруется по мере поступления, в памяти копится только
+    // шифротекст, который всё равно целиком уходит в сообщение. Upload закрывает поток
+    // (doFinal) до события об успешной загрузке.
+    private final class EncryptingReceiver implements Receiver {
+        private String fileName;
+        private String mimeType;
+        private byte[] iv;
+        private int fileEpoch;
+        private CryptoSuite fileSuite;
+        private ByteArrayOutputStream ciphertext;
+
+        @Override
+        public OutputStream receiveUpload(String fileName, String mimeType) {
+            this.fileName = fileName;
+            this.mimeType = (mimeType != null) ? mimeType : "application/octet-stream";
+            this.fileEpoch = epoch;
+            this.fileSuite = suite;
+            this.iv = new byte[fileSuite.getBlockSize()];
+            rng.nextBytes(iv);
+            this.ciphertext = new ByteArrayOutputStream();
+            return new CipherOutputStream(ciphertext, fileSuite.newContext().init(true, iv));
+        }
+    }
 
-        try (InputStream inputStream = buffer.getInputStream()) {
-            byte[] data = inputStream.readAllBytes();
+    private void onFileUpload(EncryptingReceiver receiver) {
+        String fileName = receiver.fileName;
+        String mimeType = receiver.mimeType;
+        byte[] iv = receiver.iv;
 
-            // 1. Шифруем и получаем зашифрованные данные
-            byte[] iv = new byte[suite.getBlockSize()];
-            rng.nextBytes(iv);
-            byte[] ciphertext = suite.encrypt(data, iv);
+        // 1. Файл уже зашифрован при загрузке; если ключ комнаты за это время сменился,
+        // шифротекст нельзя отправлять с новой эпохой
+        if (receiver.fileEpoch != epoch) {
+            Notification.show("Ключ комнаты сменился во время загрузки, отправьте файл ещё раз");
+            return;
+        }
+        try {
+            byte[] ciphertext = receiver.ciphertext.toByteArray();
 
             // 2. Генерируем fileId
             String fileId = UUID.randomUUID().toString();
 
             // 3. Сохраняем в локальное хранилище СРАЗУ
-            encryptedFiles.put(fileId, new EncryptedFile(iv, ciphertext, fileName, mimeType));
+            encryptedFiles.put(fileId, new EncryptedFile(iv, ciphertext, fileName, mimeType, receiver.fileSuite));
 
             // 4. Отправляем по WebSocket
-            sendEncrypted(username, data, fileName, mimeType, fileId);
+            sendCiphertext(username, iv, ciphertext, fileName, mimeType, fileId);
 
             // 5. Создаём StreamResource с тем же fileId
             StreamResource resource = new StreamResource(fileName, () -> {
@@ -233,7 +280,7 @@ public class ChatView extends Composite<VerticalLayout> /*implements BeforeEnter
                     if (file == null) {
                         throw new IllegalStateException("Файл не найден: " + fileId);
                     }
-                    return new ByteArrayInputStream(suite.decrypt(file.ciphertext, file.iv));
+                    return decryptingStream(file);
                 } catch (Exception e) {
                     log.error("Ошибка расшифровки файла {}", fileId, e);
                     throw new RuntimeException(e);
@@ -313,75 +360,72 @@ public class ChatView extends Composite<VerticalLayout> /*implements BeforeEnter
         performKeyExchange();
     }
 
-    @SuppressWarnings("unchecked")
     private void performKeyExchange() {
         try {
             log.info("performing key exchange for user {}", username);
-            String url = "http://localhost:8080/room/list";
-            List<Map<String, Object>> rooms =
-                    Arrays.asList(Objects.requireNonNull(rest.getForObject(url, Map[].class)));
-
-            Map<String, Object> myRoom = rooms.stream()
-                    .filter(r -> dialogId.equals(r.get("id")))
-                    .findFirst()
-                    .orElseThrow();
-
-            BigInteger p = new BigInteger(myRoom.get("p").toString());
-            BigInteger q = new BigInteger(myRoom.get("q").toString());
-            BigInteger g = new BigInteger(myRoom.get("g").toString());
-
-            DhParams params = new DhParams(p, q, g);
-            dh = new DiffieHellman(params);
-            privateKey = dh.generatePrivate();
-            byte[] publicKey = dh.derivePublic(privateKey);
-
-            String submitUrl = "http://localhost:8080/room/" + dialogId
-                    + "/submitKey?userId=" + userId
-                    + "&publicKey=" + new BigInteger(1, publicKey);
-            rest.postForObject(submitUrl, null, String.class);
+            Room myRoom = rooms.find(dialogId)
+                    .orElseThrow(() -> new IllegalStateException("комната " + dialogId + " не найдена"));
 
+            // один ключ на комнату по дереву участников: вход и выход стоят O(log N)
+            // возведений в степень, каждое сообщение шифруется один раз для всех
+            member = new GroupKeyMember(userId, keyAgreementFor(myRoom));
             UI ui = UI.getCurrent();
-            keyPoller = new Timer(true);
-            keyPoller.schedule(new TimerTask() {
-                @Override
-                public void run() {
-                    try {
-                        log.info("polling keys for user {}", username);
-                        Map<String, Object> keyMap = rest.getForObject(
-                                "http://localhost:8080/room/" + dialogId + "/keys",
-                                Map.class);
-                        if (keyMap != null && keyMap.size() >= 2) {
-                            log.info("keys polled for user {}", username);
-                            for (Map.Entry<String, Object> e : keyMap.entrySet()) {
-                                if (!e.getKey().equals(userId)) {
-                                    BigInteger peerY = new BigInteger(e.getValue().toString());
-                                    sharedKey = dh.deriveShared(privateKey, Bytes.toFixed(peerY, dh.getEncodedLength()));
-                                    ui.access(ChatView.this::setupCryptoSuite);
-                                    this.cancel();
-                                }
-                            }
-                        }
-                    } catch (Exception ignored) {}
+            groupKeys = rooms.joinGroup(dialogId, member, e -> {
+                try {
+                    ui.access(this::rekey);
+                } catch (UIDetachedException ignored) {
+                    // вкладку закрыли, leaveGroup ещё не успел выйти из группы
                 }
-            }, 1000, 2000);
+            });
         } catch (Exception e) {
             Notification.show("Ошибка при обмене ключами: " + e.getMessage());
         }
     }
 
+    private void rekey() {
+        // пока в комнате один участник, шифровать не для кого
+        if (groupKeys == null || groupKeys.size() < 2) return;
+        GroupKeyTree.Key key = groupKeys.keyFor(member);
+        if (key.epoch == epoch) return;
+        log.info("room key epoch {} for user {}", key.epoch, username);
+        epoch = key.epoch;
+        sharedKey = key.key;
+        setupCryptoSuite();
+    }
+
+    private KeyAgreement keyAgreementFor(Room room) {
+        if (KeyAgreementType.fromName(room.getKeyAgreement()) == KeyAgreementType.X25519)
+            return new X25519();
+
+        // стандартная группа - общий экземпляр с готовой таблицей степеней g
+        DhGroup group = DhGroup.fromName(room.getGroup());
+        if (group != null) return new DiffieHellman(group.params());
+        return new DiffieHellman(new DhParams(room.getP(), room.getQ(), room.getG()));
+    }
+
+    private void leaveGroup() {
+        if (groupKeys != null) {
+            rooms.leaveGroup(dialogId, userId);
+            groupKeys = null;
+        }
+    }
+
     private void setupCryptoSuite() {
         try {
             log.info("setting up suite for user {}", username);
-            if (keyPoller != null) keyPoller.cancel();
+            boolean first = !cryptoReady;
 
-            suite = new CryptoFactory.Builder()
-                    .algorithm(AlgorithmType.MARS)
-                    .mode(ModeType.CBC)
-                    .padding(PaddingType.PKCS7)
-                    .key(Arrays.copyOf(sharedKey, 16))
-                    .buildSuite();
+            // расписание ключа берётся из кэша, если этот ключ в комнате уже разворачивали
+            suite = suiteCache.get(dialogId, AlgorithmType.MARS, ModeType.CBC, PaddingType.PKCS7,
+                    Arrays.copyOf(sharedKey, 16));
+            keystreams = KeystreamPool.supports(suite) ? new KeystreamPool(suite, rng) : null;
+            recentSuites.put(epoch, suite);
 
             cryptoReady = true;
+            if (!first) {
+                Notification.show("Состав комнаты изменился, ключ обновлён");
+                return;
+            }
             UI.getCurrent().access(() -> {
                 messageInputRef.getElement().setEnabled(true);
                 uploadRef.getUploadButton().getElement().setEnabled(true);
@@ -453,7 +497,8 @@ public class ChatView extends Composite<VerticalLayout> /*implements BeforeEnter
                     if (m.ciphertext && m.iv) {
                         element.$server.receiveEncrypted(
                             m.user, m.iv, m.ciphertext, m.timestamp,
-                            m.fileName || null, m.mimeType || null
+                            m.fileName || null, m.mimeType || null,
+                            (typeof m.epoch === "number") ? m.epoch : null
                         );
                     }
                 } catch (e) {
@@ -496,28 +541,20 @@ public class ChatView extends Composite<VerticalLayout> /*implements BeforeEnter
 
     private void sendEncrypted(String user, byte[] data, String fileName, String mimeType, String fileId) {
         try {
-            byte[] iv = new byte[suite.getBlockSize()];
-            rng.nextBytes(iv);
-            byte[] ciphertext = suite.encrypt(data, iv);
-
-            JsonObject msg = Json.createObject();
-            msg.put("type", "message");
-            msg.put("userId", userId);
-            msg.put("user", user);
-            msg.put("iv", Base64.getEncoder().encodeToString(iv));
-            msg.put("ciphertext", Base64.getEncoder().encodeToString(ciphertext));
-            msg.put("timestamp", LocalDateTime.now(MOSCOW_ZONE).format(FORMATTER));
-            if (fileName != null) {
-                msg.put("fileName", fileName);
-                msg.put("mimeType", mimeType);
-                msg.put("fileId", fileId); // опционально, для отладки
+            byte[] iv;
+            byte[] ciphertext;
+            if (keystreams != null) {
+                // keystream уже посчитан в фоне, здесь только XOR
+                KeystreamPool.Sealed sealed = keystreams.encrypt(data);
+                iv = sealed.iv;
+                ciphertext = sealed.ciphertext;
+            } else {
+                iv = new byte[suite.getBlockSize()];
+                rng.nextBytes(iv);
+                ciphertext = suite.encrypt(data, iv);
             }
 
-            UI.getCurrent().getPage().executeJs("""
-            const payload = $0;
-            if (window.chatSocket && window.chatSocket.readyState === WebSocket.OPEN)
-                window.chatSocket.send(payload);
-        """, msg.toJson());
+            sendCiphertext(user, iv, ciphertext, fileName, mimeType, fileId);
 
             // Только текстовые сообщения отображаем здесь
             if (fileName == null) {
@@ -528,6 +565,35 @@ public class ChatView extends Composite<VerticalLayout> /*implements BeforeEnter
         }
     }
 
+    // уже зашифрованные данные: файл шифруется один раз и для хранилища, и для отправки
+    private void sendCiphertext(String user, byte[] iv, byte[] ciphertext,
+                                String fileName, String mimeType, String fileId) {
+        JsonObject msg = Json.createObject();
+        msg.put("type", "message");
+        msg.put("userId", userId);
+        msg.put("user", user);
+        msg.put("iv", Base64.getEncoder().encodeToString(iv));
+        msg.put("ciphertext", Base64.getEncoder().encodeToString(ciphertext));
+        msg.put("epoch", epoch);
+        msg.put("timestamp", LocalDateTime.now(MOSCOW_ZONE).format(FORMATTER));
+        if (fileName != null) {
+            msg.put("fileName", fileName);
+            msg.put("mimeType", mimeType);
+            msg.put("fileId", fileId); // опционально, для отладки
+        }
+
+        UI.getCurrent().getPage().executeJs("""
+        const payload = $0;
+        if (window.chatSocket && window.chatSocket.readyState === WebSocket.OPEN)
+            window.chatSocket.send(payload);
+    """, msg.toJson());
+    }
+
+    private InputStream decryptingStream(EncryptedFile file) {
+        return new CipherInputStream(new ByteArrayInputStream(file.ciphertext),
+                file.suite.newContext().init(false, file.iv));
+    }
+
     private String resourceUrl(StreamResource res) {
         // Получаем реальный URL, по которому браузер сходит за ресурсом
         var reg = StreamResourceRegistry.getURI(res);
@@ -536,8 +602,16 @@ public class ChatView extends Composite<VerticalLayout> /*implements BeforeEnter
 
     @ClientCallable
     public void receiveEncrypted(String user, String ivBase64, String cipherBase64,
-                                 String timestamp, String fileName, String mimeType) {
+                                 String timestamp, String fileName, String mimeType, Integer messageEpoch) {
         try {
+            // сообщение могло уйти до последней смены ключа. Ключа промежуточной эпохи
+            // (две смены состава до rekey) у нас нет: чужим ключом не расшифровываем
+            CryptoSuite received = (messageEpoch != null) ? recentSuites.get(messageEpoch) : null;
+            if (received == null) {
+                log.warn("no key for epoch {} in room {}", messageEpoch, dialogId);
+                addUiMessage(user, "[сообщение зашифровано ключом, которого у вас нет; не расшифровано]", timestamp);
+                return;
+            }
             byte[] iv = Base64.getDecoder().decode(ivBase64);
             byte[] cipher = Base64.getDecoder().decode(cipherBase64);
 
@@ -546,7 +620,7 @@ public class ChatView extends Composite<VerticalLayout> /*implements BeforeEnter
             if (fileName != null && mimeType != null) {
                 // Сохраняем зашифрованные данные
                 String fileId = UUID.randomUUID().toString();
-                encryptedFiles.put(fileId, new EncryptedFile(iv, cipher, fileName, mimeType));
+                encryptedFiles.put(fileId, new EncryptedFile(iv, cipher, fileName, mimeType, received));
 
                 // Создаём StreamResource с ленивой расшифровкой
                 StreamResource resource = new StreamResource(fileName, () -> {
@@ -555,8 +629,7 @@ public class ChatView extends Composite<VerticalLayout> /*implements BeforeEnter
                         if (file == null) {
                             throw new IllegalStateException("File not found: " + fileId);
                         }
-                        byte[] plaintext = suite.decrypt(file.ciphertext, file.iv);
-                        return new ByteArrayInputStream(plaintext);
+                        return decryptingStream(file);
                     } catch (Exception e) {
                         log.error("Failed to decrypt file {}", fileId, e);
                         throw new RuntimeException(e);
@@ -586,7 +659,7 @@ public class ChatView extends Composite<VerticalLayout> /*implements BeforeEnter
                 messagesLayout.getElement().executeJs("this.scrollTop = this.scrollHeight");
 
             } else {
-                byte[] plaintext = suite.decrypt(cipher, iv);
+                byte[] plaintext = received.decrypt(cipher, iv);
                 String text = new String(plaintext, StandardCharsets.UTF_8);
                 addUiMessage(user, text, timestamp);
             }
@@ -637,7 +710,7 @@ public class ChatView extends Composite<VerticalLayout> /*implements BeforeEnter
 
     private void disconnectUser() {
         try {
-            if (keyPoller != null) keyPoller.cancel();
+            leaveGroup();
             UI.getCurrent().getPage().executeJs("""
                 if (window.chatSocket && window.chatSocket.readyState === WebSocket.OPEN) {
                     window.chatSocket._manualClose = true;
@@ -653,7 +726,7 @@ public class ChatView extends Composite<VerticalLayout> /*implements BeforeEnter
 
     @Override
     protected void onDetach(DetachEvent detachEvent) {
-        if (keyPoller != null) keyPoller.cancel();
+        leaveGroup();
         UI.getCurrent().getPage().executeJs("""
             if (window.chatSocket && window.chatSocket.readyState === WebSocket.OPEN) {
                 window.chatSocket._manualClose = true;
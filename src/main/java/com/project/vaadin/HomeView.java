@@ -1,5 +1,7 @@
 package com.project.vaadin;
 
+import com.project.model.Room;
+import com.project.service.RoomFacade;
 import com.vaadin.flow.component.button.Button;
 import com.vaadin.flow.component.dialog.Dialog;
 import com.vaadin.flow.component.notification.Notification;
@@ -10,17 +12,15 @@ import com.vaadin.flow.component.textfield.TextField;
 import com.vaadin.flow.router.PageTitle;
 import com.vaadin.flow.router.Route;
 import com.vaadin.flow.server.VaadinSession;
-import org.springframework.web.client.RestTemplate;
-
-import java.util.Map;
 
 @PageTitle("CryptoChat — вход")
 @Route(value = "")
 public class HomeView extends VerticalLayout {
 
-    private final RestTemplate rest = new RestTemplate();
+    private final RoomFacade rooms;
 
-    public HomeView() {
+    public HomeView(RoomFacade rooms) {
+        this.rooms = rooms;
         setDefaultHorizontalComponentAlignment(Alignment.CENTER);
         setSpacing(true);
         setPadding(true);
@@ -47,10 +47,12 @@ public class HomeView extends VerticalLayout {
 
             VaadinSession.getCurrent().setAttribute("username", name);
 
-            if (!roomId.isEmpty()) {
-                getUI().ifPresent(ui -> ui.navigate("chat-view/" + roomId));
-            } else {
+            if (roomId.isEmpty()) {
                 Notification.show("Введите ID комнаты или создайте новую");
+            } else if (rooms.find(roomId).filter(Room::isActive).isEmpty()) {
+                Notification.show("Комната не найдена или закрыта");
+            } else {
+                getUI().ifPresent(ui -> ui.navigate("chat-view/" + roomId));
             }
         });
 
@@ -88,6 +90,11 @@ public class HomeView extends VerticalLayout {
         paddingSelect.setItems("PKCS7", "ZEROS", "ANSI_X923", "ISO_10126");
         paddingSelect.setPlaceholder("Выберите паддинг");
 
+        Select<String> keyAgreementSelect = new Select<>();
+        keyAgreementSelect.setLabel("Обмен ключами");
+        keyAgreementSelect.setItems("DH", "X25519");
+        keyAgreementSelect.setValue("DH");
+
         Button confirm = new Button("Создать", ev -> {
             if (algorithmSelect.isEmpty() || modeSelect.isEmpty() || paddingSelect.isEmpty()) {
                 Notification.show("Выберите все параметры шифрования!");
@@ -99,18 +106,8 @@ public class HomeView extends VerticalLayout {
             String padding = paddingSelect.getValue();
 
             try {
-                String url = "http://localhost:8080/room/create"
-                        + "?algorithm=" + algorithm
-                        + "&mode=" + mode
-                        + "&padding=" + padding;
-
-                Map<?, ?> room = rest.postForObject(url, null, Map.class);
-                if (room == null || room.get("id") == null) {
-                    Notification.show("Ошибка: сервер не вернул ID комнаты");
-                    return;
-                }
-
-                String dialogId = room.get("id").toString();
+                Room room = rooms.create(algorithm, mode, padding, keyAgreementSelect.getValue());
+                String dialogId = room.getId();
                 Notification.show("Создана комната: " + dialogId);
 
                 VaadinSession sess = VaadinSession.getCurrent();
@@ -132,6 +129,7 @@ public class HomeView extends VerticalLayout {
                 algorithmSelect,
                 modeSelect,
                 paddingSelect,
+                keyAgreementSelect,
                 confirm,
                 cancel
         );
@@ -1,10 +1,12 @@
 package com.project.websocket;
 
+import com.project.crypto.factories.SuiteCache;
 import com.project.vaadin.SessionRegistry;
 import com.vaadin.flow.component.UI;
 import com.vaadin.flow.server.VaadinSession;
 import elemental.json.Json;
 import elemental.json.JsonObject;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.web.socket.CloseStatus;
 import org.springframework.web.socket.TextMessage;
@@ -18,8 +20,11 @@ import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 
 @Slf4j
+@RequiredArgsConstructor
 public class ChatWebSocketHandler extends TextWebSocketHandler {
 
+    private final SuiteCache suiteCache;
+
     // активные комнаты: roomId → набор сессий
     private static final Map<String, Set<WebSocketSession>> rooms = new ConcurrentHashMap<>();
 
@@ -178,6 +183,7 @@ public class ChatWebSocketHandler extends TextWebSocketHandler {
             }
         }
         messageHistory.remove(roomId);
+        suiteCache.invalidate(roomId);
         log.info("Комната {} полностью очищена", roomId);
     }
 
@@ -1,5 +1,7 @@
 package com.project.websocket;
 
+import com.project.crypto.factories.SuiteCache;
+import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.socket.config.annotation.EnableWebSocket;
 import org.springframework.web.socket.config.annotation.WebSocketConfigurer;
@@ -7,11 +9,14 @@ import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry
 
 @Configuration
 @EnableWebSocket
+@RequiredArgsConstructor
 public class WebSocketConfig implements WebSocketConfigurer {
 
+    private final SuiteCache suiteCache;
+
     @Override
     public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
-        registry.addHandler(new ChatWebSocketHandler(), "/chat/{roomId}")
+        registry.addHandler(new ChatWebSocketHandler(suiteCache), "/chat/{roomId}")
                 .setAllowedOrigins("*");
     }
 }
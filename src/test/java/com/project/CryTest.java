@@ -1,6 +1,9 @@
 package com.project;
 
+import com.project.crypto.ciphers.Algorithm;
 import com.project.crypto.ciphers.Magenta;
+import com.project.crypto.ciphers.MagentaFast;
+import com.project.crypto.ciphers.MagentaTable;
 import com.project.crypto.factories.*;
 import com.project.crypto.keyx.DhParams;
 import com.project.crypto.keyx.DiffieHellman;
@@ -8,10 +11,12 @@ import com.project.crypto.modes.CbcMode;
 import com.project.crypto.modes.CfbMode;
 import com.project.crypto.modes.EcbMode;
 import com.project.crypto.modes.OfbMode;
+import com.project.crypto.modes.ParallelBlocks;
 import com.project.crypto.padding.ISO_10126Padding;
 import com.project.crypto.padding.Padding;
 import com.project.crypto.padding.Pkcs7Padding;
 import com.project.crypto.ciphers.MARS;
+import com.project.crypto.ciphers.MARSUnrolled;
 import org.junit.jupiter.api.Test;
 
 import java.security.SecureRandom;
@@ -38,6 +43,105 @@ public class CryTest {
         }
     }
 
+    @Test
+    void block_offset_api_in_place() {
+        Algorithm[] algs = { new MARS(), new Magenta() };
+        for (Algorithm alg : algs) {
+            alg.setKey(randomBytes(16));
+
+            byte[] pt = randomBytes(16);
+            byte[] expected = alg.encryptBlock(pt);
+
+            byte[] buf = new byte[48];
+            System.arraycopy(pt, 0, buf, 7, 16);
+            alg.encryptBlock(buf, 7, buf, 7);
+            assertArrayEquals(expected, java.util.Arrays.copyOfRange(buf, 7, 23));
+
+            alg.decryptBlock(buf, 7, buf, 30);
+            assertArrayEquals(pt, java.util.Arrays.copyOfRange(buf, 30, 46));
+        }
+    }
+
+    @Test
+    void mars_batch_matches_single_blocks() {
+        MARS mars = new MARS();
+        mars.setKey(randomKey());
+
+        for (int blocks : new int[]{1, 3, 4, 9, 64}) {
+            byte[] pt = randomBytes(blocks * 16);
+            byte[] expected = new byte[pt.length];
+            for (int off = 0; off < pt.length; off += 16)
+                mars.encryptBlock(pt, off, expected, off);
+
+            byte[] buf = pt.clone();
+            mars.encryptBlocks(buf, 0, buf, 0, blocks);
+            assertArrayEquals(expected, buf, "blocks=" + blocks);
+
+            mars.decryptBlocks(buf, 0, buf, 0, blocks);
+            assertArrayEquals(pt, buf, "blocks=" + blocks);
+        }
+    }
+
+    @Test
+    void mars_unrolled_matches_reference() {
+        for (int i = 0; i < 16; i++) {
+            byte[] key = randomKey();
+            MARS ref = new MARS();
+            MARSUnrolled unrolled = new MARSUnrolled();
+            ref.setKey(key);
+            unrolled.setKey(key);
+
+            byte[] pt = randomBytes(16);
+            byte[] ct = ref.encryptBlock(pt);
+            assertArrayEquals(ct, unrolled.encryptBlock(pt));
+            assertArrayEquals(pt, unrolled.decryptBlock(ct));
+        }
+    }
+
+    @Test
+    void engines_reject_second_set_key() {
+        Algorithm[] engines = {new MARS(), new MARSUnrolled(), new Magenta(),
+                new MagentaFast(), new MagentaTable()};
+        for (Algorithm alg : engines) {
+            alg.setKey(randomBytes(16));
+            assertThrows(IllegalStateException.class, () -> alg.setKey(randomBytes(16)),
+                    alg.getClass().getSimpleName());
+        }
+    }
+
+    @Test
+    void mars_unrolled_batches_match_reference() {
+        byte[] key = randomKey();
+        MARS ref = new MARS();
+        MARSUnrolled unrolled = new MARSUnrolled();
+        ref.setKey(key);
+        unrolled.setKey(key);
+
+        // число блоков не кратно полосам MARS, данные со смещением внутри массива
+        for (int blocks = 1; blocks <= 11; blocks++) {
+            byte[] pt = randomBytes(3 + 16 * blocks);
+            byte[] expected = new byte[pt.length + 5];
+            byte[] actual = new byte[pt.length + 5];
+            ref.encryptBlocks(pt, 3, expected, 5, blocks);
+            unrolled.encryptBlocks(pt, 3, actual, 5, blocks);
+            assertArrayEquals(expected, actual);
+
+            byte[] expectedDec = new byte[pt.length];
+            byte[] actualDec = new byte[pt.length];
+            ref.decryptBlocks(expected, 5, expectedDec, 3, blocks);
+            unrolled.decryptBlocks(actual, 5, actualDec, 3, blocks);
+            assertArrayEquals(expectedDec, actualDec);
+            assertArrayEquals(java.util.Arrays.copyOfRange(pt, 3, pt.length),
+                    java.util.Arrays.copyOfRange(actualDec, 3, pt.length));
+
+            // на месте, как в CTR и RandomDelta
+            byte[] inPlace = pt.clone();
+            unrolled.encryptBlocks(inPlace, 3, inPlace, 3, blocks);
+            assertArrayEquals(java.util.Arrays.copyOfRange(expected, 5, 5 + 16 * blocks),
+                    java.util.Arrays.copyOfRange(inPlace, 3, inPlace.length));
+        }
+    }
+
     @Test
     void cbc_pkcs7() {
         MARS mars = new MARS();
@@ -142,6 +246,122 @@ public class CryTest {
         assertArrayEquals(msg, out);
     }
 
+    @Test
+    void ctr_parallel_matches_serial() {
+        MARS mars = new MARS();
+        mars.setKey(randomKey());
+        com.project.crypto.modes.CtrMode ctr = new com.project.crypto.modes.CtrMode(mars);
+
+        byte[] iv = randomBytes(16);
+        iv[15] = (byte) 0xf0; // перенос через границу байта внутри куска
+        byte[] msg = randomBytes(300_001);
+
+        int saved = ParallelBlocks.getThreshold();
+        try {
+            ParallelBlocks.setThreshold(Integer.MAX_VALUE);
+            byte[] serial = ctr.encrypt(msg, iv);
+            ParallelBlocks.setThreshold(0);
+            byte[] parallel = ctr.encrypt(msg, iv);
+
+            assertArrayEquals(serial, parallel);
+            assertArrayEquals(msg, ctr.decrypt(parallel, iv));
+        } finally {
+            ParallelBlocks.setThreshold(saved);
+        }
+    }
+
+    @Test
+    void parallel_modes_match_serial() {
+        MARS mars = new MARS();
+        mars.setKey(randomKey());
+        com.project.crypto.modes.CipherMode[] modes = {
+                new CbcMode(mars), new CfbMode(mars), new EcbMode(mars),
+                new com.project.crypto.modes.RandomDeltaMode(mars)
+        };
+
+        byte[] iv = randomBytes(16);
+        int saved = ParallelBlocks.getThreshold();
+        try {
+            for (com.project.crypto.modes.CipherMode mode : modes) {
+                int len = (mode instanceof CfbMode) ? 300_007 : 300_000;
+                byte[] msg = randomBytes(len);
+
+                ParallelBlocks.setThreshold(Integer.MAX_VALUE);
+                byte[] ct = mode.encrypt(msg, iv);
+                byte[] serial = mode.decrypt(ct, iv);
+                ParallelBlocks.setThreshold(0);
+                byte[] parallelCt = mode.encrypt(msg, iv);
+                byte[] parallel = mode.decrypt(ct, iv);
+
+                String name = mode.getClass().getSimpleName();
+                assertArrayEquals(ct, parallelCt, name);
+                assertArrayEquals(serial, parallel, name);
+                assertArrayEquals(msg, parallel, name);
+            }
+        } finally {
+            ParallelBlocks.setThreshold(saved);
+        }
+    }
+
+    @Test
+    void parallel_threshold_is_per_engine() {
+        int saved = ParallelBlocks.getThreshold();
+        try {
+            ParallelBlocks.setThreshold(12345);
+            ParallelBlocks.setThreshold(MARS.class, 0);
+            assertEquals(0, ParallelBlocks.getThreshold(MARS.class));
+            assertEquals(12345, ParallelBlocks.getThreshold(Magenta.class));
+            assertEquals(0, EngineRegistry.withBuiltins().find(AlgorithmType.MARS, "reference").getParallelThreshold());
+
+            // свой порог движка главнее общего
+            MARS mars = new MARS();
+            mars.setKey(randomKey());
+            EcbMode ecb = new EcbMode(mars);
+            byte[] msg = randomBytes(300_000);
+            byte[] parallel = ecb.encrypt(msg, null);
+            ParallelBlocks.setThreshold(0);
+            ParallelBlocks.setThreshold(MARS.class, Integer.MAX_VALUE);
+            assertArrayEquals(parallel, ecb.encrypt(msg, null));
+
+            ParallelBlocks.clearThreshold(MARS.class);
+            assertEquals(0, ParallelBlocks.getThreshold(MARS.class));
+        } finally {
+            ParallelBlocks.clearThreshold(MARS.class);
+            ParallelBlocks.setThreshold(saved);
+        }
+    }
+
+    @Test
+    void random_delta_known_answer() {
+        // ожидаемый шифротекст получен исходной реализацией RandomDelta на BigInteger;
+        // initial + delta * i переполняет младшие 8 байт уже со второго блока
+        byte[] key = new byte[16];
+        for (int i = 0; i < key.length; i++) key[i] = (byte) i;
+        java.util.HexFormat hex = java.util.HexFormat.of();
+        byte[] iv = hex.parseHex("fffffffffffffff0ffffffffffffff0f");
+        byte[] msg = new byte[87];
+        for (int i = 0; i < msg.length; i++) msg[i] = (byte) (i * 7 + 3);
+        String expected = "45c791ff3a1c9b1c26d0dadda7ff03b4d0e44630b7befd342d57c34b7ac5ef43"
+                + "c41f76b97582a7be92be3ba9af0952bb9cf54d8c58e05d73431287dab7fad07d"
+                + "9f3948410c4f3f5faf2fc255b308ca625c9f1b0d490067";
+
+        MARS mars = new MARS();
+        mars.setKey(key);
+        com.project.crypto.modes.RandomDeltaMode rd = new com.project.crypto.modes.RandomDeltaMode(mars);
+        int saved = ParallelBlocks.getThreshold();
+        try {
+            for (int threshold : new int[]{Integer.MAX_VALUE, 0}) {
+                ParallelBlocks.setThreshold(threshold);
+                byte[] ct = rd.encrypt(msg, iv);
+                assertEquals(expected, hex.formatHex(ct), "threshold=" + threshold);
+                byte[] full = java.util.Arrays.copyOf(ct, 80);
+                assertArrayEquals(java.util.Arrays.copyOf(msg, 80), rd.decrypt(full, iv), "threshold=" + threshold);
+            }
+        } finally {
+            ParallelBlocks.setThreshold(saved);
+        }
+    }
+
     @Test
     void random_delta_pkcs7() {
         MARS mars = new MARS();
@@ -194,6 +414,682 @@ public class CryTest {
         }
     }
 
+    @Test
+    void streaming_context_matches_suite() {
+        byte[] key = randomKey();
+        SecureRandom rnd = new SecureRandom();
+
+        for (ModeType mt : ModeType.values()) {
+            for (PaddingType pt : PaddingType.values()) {
+                CryptoSuite suite = new CryptoFactory.Builder()
+                        .algorithm(AlgorithmType.MARS).mode(mt).padding(pt).key(key).buildSuite();
+                String name = mt + "/" + pt;
+
+                for (int len : new int[]{0, 1, 16, 33, 5000}) {
+                    byte[] iv = randomBytes(suite.getBlockSize());
+                    byte[] msg = randomBytes(len);
+
+                    // шифруем кусками случайной длины
+                    CipherContext enc = suite.newContext().init(true, iv);
+                    java.io.ByteArrayOutputStream ct = new java.io.ByteArrayOutputStream();
+                    for (int off = 0; off < len; ) {
+                        int n = Math.min(len - off, rnd.nextInt(40));
+                        byte[] out = new byte[enc.getOutputSize(n)];
+                        ct.write(out, 0, enc.update(msg, off, n, out, 0));
+                        off += n;
+                    }
+                    ct.writeBytes(enc.doFinal());
+
+                    byte[] streamed = ct.toByteArray();
+                    if (pt != PaddingType.ISO_10126)
+                        assertArrayEquals(suite.encrypt(msg, iv), streamed, name);
+
+                    CipherContext dec = suite.newContext().init(false, iv);
+                    java.io.ByteArrayOutputStream pt2 = new java.io.ByteArrayOutputStream();
+                    pt2.writeBytes(dec.update(streamed));
+                    pt2.writeBytes(dec.doFinal());
+                    assertArrayEquals(suite.decrypt(streamed, iv), pt2.toByteArray(), name);
+                }
+            }
+        }
+    }
+
+    @Test
+    void streaming_zeros_padding_matches_suite_on_trailing_zeros() {
+        byte[] key = randomKey();
+        for (ModeType mt : ModeType.values()) {
+            CryptoSuite suite = new CryptoFactory.Builder()
+                    .algorithm(AlgorithmType.MARS).mode(mt).padding(PaddingType.Zeros).key(key).buildSuite();
+            for (int len : new int[]{16, 32, 48}) {
+                byte[] msg = randomBytes(len);
+                // хвост из нулей, у длинных сообщений - через границу блока
+                java.util.Arrays.fill(msg, len - (len > 16 ? 17 : 1), len, (byte) 0);
+                byte[] iv = randomBytes(suite.getBlockSize());
+                byte[] ct = suite.encrypt(msg, iv);
+                byte[] expected = suite.decrypt(ct, iv);
+                // длина кратна блоку: паддинг - ровно последний блок, нули сообщения остаются
+                assertArrayEquals(msg, expected, mt + " len=" + len);
+
+                // по одному байту и целиком
+                for (int step : new int[]{1, ct.length}) {
+                    CipherContext dec = suite.newContext().init(false, iv);
+                    java.io.ByteArrayOutputStream out = new java.io.ByteArrayOutputStream();
+                    for (int off = 0; off < ct.length; off += step) {
+                        int n = Math.min(step, ct.length - off);
+                        byte[] buf = new byte[dec.getOutputSize(n)];
+                        out.write(buf, 0, dec.update(ct, off, n, buf, 0));
+                    }
+                    out.writeBytes(dec.doFinal());
+                    assertArrayEquals(expected, out.toByteArray(), mt + " len=" + len + " step=" + step);
+                }
+            }
+        }
+
+        // большой файл из нулей: контекст не копит нули, выход идёт сразу
+        CryptoSuite suite = new CryptoFactory.Builder()
+                .algorithm(AlgorithmType.MARS).mode(ModeType.CBC).padding(PaddingType.Zeros).key(key).buildSuite();
+        byte[] iv = randomBytes(16);
+        byte[] ct = suite.encrypt(new byte[1 << 20], iv);
+        CipherContext dec = suite.newContext().init(false, iv);
+        byte[] buf = new byte[8192 + 16];
+        long total = 0;
+        for (int off = 0; off < ct.length; off += 8192) {
+            int n = Math.min(8192, ct.length - off);
+            assertTrue(dec.getOutputSize(n) <= n + 16);
+            total += dec.update(ct, off, n, buf, 0);
+        }
+        total += dec.doFinal(buf, 0);
+        assertEquals(1 << 20, total);
+    }
+
+    @Test
+    void cipher_streams_round_trip() throws Exception {
+        CryptoSuite suite = new CryptoFactory.Builder()
+                .algorithm(AlgorithmType.MAGENTA)
+                .mode(ModeType.CBC)
+                .padding(PaddingType.PKCS7)
+                .key(randomBytes(16))
+                .buildSuite();
+
+        byte[] iv = randomBytes(suite.getBlockSize());
+        byte[] msg = randomBytes(100_003);
+
+        java.io.ByteArrayOutputStream sink = new java.io.ByteArrayOutputStream();
+        try (var out = new com.project.crypto.streams.CipherOutputStream(sink, suite.newContext().init(true, iv))) {
+            out.write(msg, 0, 7);
+            out.write(msg, 7, msg.length - 7);
+        }
+        assertArrayEquals(suite.encrypt(msg, iv), sink.toByteArray());
+
+        try (var in = new com.project.crypto.streams.CipherInputStream(
+                new java.io.ByteArrayInputStream(sink.toByteArray()), suite.newContext().init(false, iv))) {
+            assertArrayEquals(msg, in.readAllBytes());
+        }
+    }
+
+    @Test
+    void byte_buffer_entry_points() throws Exception {
+        byte[] key = randomBytes(16);
+        for (ModeType mt : ModeType.values()) {
+            CryptoSuite suite = new CryptoFactory.Builder()
+                    .algorithm(AlgorithmType.MARS).mode(mt).padding(PaddingType.PKCS7).key(key).buildSuite();
+            byte[] iv = randomBytes(16);
+            byte[] msg = randomBytes(70_001);
+            byte[] expected = suite.encrypt(msg, iv);
+
+            // heap -> heap, direct -> direct, heap -> direct
+            java.nio.ByteBuffer[][] pairs = {
+                    {java.nio.ByteBuffer.wrap(msg), java.nio.ByteBuffer.allocate(expected.length)},
+                    {java.nio.ByteBuffer.allocateDirect(msg.length).put(msg).flip(), java.nio.ByteBuffer.allocateDirect(expected.length)},
+                    {java.nio.ByteBuffer.wrap(msg), java.nio.ByteBuffer.allocateDirect(expected.length)}
+            };
+            for (java.nio.ByteBuffer[] p : pairs) {
+                java.nio.ByteBuffer src = p[0], dst = p[1];
+                assertEquals(expected.length, suite.encrypt(src, dst, iv), mt.name());
+                assertFalse(src.hasRemaining());
+                byte[] ct = new byte[expected.length];
+                dst.flip().get(ct);
+                assertArrayEquals(expected, ct, mt.name());
+
+                java.nio.ByteBuffer plain = java.nio.ByteBuffer.allocateDirect(suite.getOutputSize(false, ct.length));
+                int n = suite.decrypt(java.nio.ByteBuffer.wrap(ct), plain, iv);
+                byte[] back = new byte[n];
+                plain.flip().get(back);
+                assertArrayEquals(msg, back, mt.name());
+            }
+        }
+
+        // режим без паддинга напрямую между отображёнными в память файлами
+        MARS mars = new MARS();
+        mars.setKey(key);
+        com.project.crypto.modes.CtrMode ctr = new com.project.crypto.modes.CtrMode(mars);
+        byte[] iv = randomBytes(16);
+        byte[] msg = randomBytes(100_005);
+        java.nio.file.Path in = java.nio.file.Files.createTempFile("cry", ".in");
+        java.nio.file.Path out = java.nio.file.Files.createTempFile("cry", ".out");
+        try {
+            java.nio.file.Files.write(in, msg);
+            try (var src = java.nio.channels.FileChannel.open(in, java.nio.file.StandardOpenOption.READ);
+                 var dst = java.nio.channels.FileChannel.open(out, java.nio.file.StandardOpenOption.READ,
+                         java.nio.file.StandardOpenOption.WRITE)) {
+                ctr.encrypt(src.map(java.nio.channels.FileChannel.MapMode.READ_ONLY, 0, msg.length),
+                        dst.map(java.nio.channels.FileChannel.MapMode.READ_WRITE, 0, msg.length), iv);
+            }
+            assertArrayEquals(ctr.encrypt(msg, iv), java.nio.file.Files.readAllBytes(out));
+        } finally {
+            java.nio.file.Files.deleteIfExists(in);
+            java.nio.file.Files.deleteIfExists(out);
+        }
+    }
+
+    @Test
+    void decrypt_range_matches_full_decrypt() {
+        MARS mars = new MARS();
+        mars.setKey(randomKey());
+        com.project.crypto.modes.CipherMode[] modes = {
+                new CbcMode(mars), new CfbMode(mars), new EcbMode(mars), new OfbMode(mars),
+                new com.project.crypto.modes.PcbcMode(mars), new com.project.crypto.modes.CtrMode(mars),
+                new com.project.crypto.modes.RandomDeltaMode(mars)
+        };
+        SecureRandom rnd = new SecureRandom();
+
+        for (com.project.crypto.modes.CipherMode mode : modes) {
+            String name = mode.getClass().getSimpleName();
+            boolean aligned = mode instanceof CbcMode || mode instanceof EcbMode
+                    || mode instanceof com.project.crypto.modes.PcbcMode;
+            byte[] iv = randomBytes(16);
+            byte[] ct = mode.encrypt(randomBytes(aligned ? 4096 : 4099), iv);
+            byte[] full = mode.decrypt(ct, iv);
+
+            for (int i = 0; i < 50; i++) {
+                int off = rnd.nextInt(ct.length + 1);
+                int len = rnd.nextInt(ct.length - off + 1);
+                assertArrayEquals(java.util.Arrays.copyOfRange(full, off, off + len),
+                        mode.decryptRange(ct, iv, off, len), name + " off=" + off + " len=" + len);
+            }
+            assertThrows(IllegalArgumentException.class, () -> mode.decryptRange(ct, iv, ct.length - 1, 2));
+        }
+
+        assertTrue(new com.project.crypto.modes.CtrMode(mars).isSeekable());
+        assertTrue(new com.project.crypto.modes.RandomDeltaMode(mars).isSeekable());
+        assertFalse(new OfbMode(mars).isSeekable());
+        assertThrows(UnsupportedOperationException.class,
+                () -> new OfbMode(mars).newContext(false, randomBytes(16), 3));
+    }
+
+    @Test
+    void suite_decrypt_range_clips_padding() {
+        CryptoSuite suite = new CryptoFactory.Builder()
+                .algorithm(AlgorithmType.MARS)
+                .mode(ModeType.CTR)
+                .padding(PaddingType.PKCS7)
+                .key(randomKey())
+                .buildSuite();
+
+        byte[] iv = randomBytes(16);
+        byte[] msg = randomBytes(1000);
+        byte[] ct = suite.encrypt(msg, iv);
+
+        assertTrue(suite.isSeekable());
+        assertArrayEquals(java.util.Arrays.copyOfRange(msg, 500, 600), suite.decryptRange(ct, iv, 500, 100));
+        assertArrayEquals(java.util.Arrays.copyOfRange(msg, 990, 1000), suite.decryptRange(ct, iv, 990, ct.length - 990));
+        assertEquals(0, suite.decryptRange(ct, iv, 1005, 3).length);
+    }
+
+    @Test
+    void keystream_pool_matches_suite() {
+        for (ModeType mt : new ModeType[]{ModeType.OFB, ModeType.CTR}) {
+            CryptoSuite suite = new CryptoFactory.Builder()
+                    .algorithm(AlgorithmType.MARS).mode(mt).padding(PaddingType.PKCS7).key(randomKey()).buildSuite();
+            // executor без потоков: пул заполняется прямо в вызывающем потоке
+            KeystreamPool pool = new KeystreamPool(suite, new SecureRandom(), 4, 256, Runnable::run);
+            assertEquals(4, pool.available(), mt.name());
+
+            java.util.Set<String> ivs = new java.util.HashSet<>();
+            for (int len : new int[]{0, 5, 100, 240, 255, 1000}) {
+                byte[] msg = randomBytes(len);
+                KeystreamPool.Sealed s = pool.encrypt(msg);
+                assertTrue(ivs.add(java.util.Base64.getEncoder().encodeToString(s.iv)), "IV reused");
+                assertArrayEquals(suite.encrypt(msg, s.iv), s.ciphertext, mt + " len=" + len);
+                assertArrayEquals(msg, suite.decrypt(s.ciphertext, s.iv));
+            }
+        }
+
+        CryptoSuite cbc = new CryptoFactory.Builder()
+                .algorithm(AlgorithmType.MARS).mode(ModeType.CBC).padding(PaddingType.PKCS7).key(randomKey()).buildSuite();
+        assertFalse(KeystreamPool.supports(cbc));
+        assertThrows(IllegalArgumentException.class, () -> new KeystreamPool(cbc, new SecureRandom()));
+    }
+
+    @Test
+    void padding_in_place_at_offset() {
+        Padding[] paddings = {
+                new Pkcs7Padding(), new ISO_10126Padding(),
+                new com.project.crypto.padding.ANSI_X923Padding(), new com.project.crypto.padding.ZerosPadding()
+        };
+        for (Padding pad : paddings) {
+            for (int len : new int[]{0, 1, 15, 16, 17}) {
+                byte[] data = randomBytes(len);
+                if (len > 0) data[len - 1] |= 1; // Zeros не различает хвостовые нули
+                byte[] buf = new byte[7 + pad.paddedLength(len, 16)];
+                System.arraycopy(data, 0, buf, 7, len);
+
+                int n = pad.padInPlace(buf, 7, len, 16);
+                assertEquals(buf.length - 7, n);
+                assertEquals(len, pad.unpaddedLength(buf, 7, n), pad.getClass().getSimpleName());
+                assertArrayEquals(data, pad.unpad(java.util.Arrays.copyOfRange(buf, 7, buf.length)));
+            }
+        }
+    }
+
+    @Test
+    void mode_offset_api_in_place() {
+        MARS mars = new MARS();
+        mars.setKey(randomKey());
+        com.project.crypto.modes.CipherMode[] modes = {
+                new CbcMode(mars), new CfbMode(mars), new EcbMode(mars), new OfbMode(mars),
+                new com.project.crypto.modes.PcbcMode(mars), new com.project.crypto.modes.CtrMode(mars),
+                new com.project.crypto.modes.RandomDeltaMode(mars)
+        };
+        for (com.project.crypto.modes.CipherMode mode : modes) {
+            byte[] iv = randomBytes(16);
+            byte[] msg = randomBytes(160);
+            byte[] expected = mode.encrypt(msg, iv);
+
+            byte[] buf = new byte[5 + msg.length];
+            System.arraycopy(msg, 0, buf, 5, msg.length);
+            mode.encrypt(buf, 5, buf, 5, msg.length, iv);
+            assertArrayEquals(expected, java.util.Arrays.copyOfRange(buf, 5, buf.length), mode.getClass().getSimpleName());
+
+            byte[] plain = new byte[3 + msg.length];
+            mode.decrypt(buf, 5, plain, 3, msg.length, iv);
+            assertArrayEquals(msg, java.util.Arrays.copyOfRange(plain, 3, plain.length), mode.getClass().getSimpleName());
+        }
+    }
+
+    @Test
+    void batch_matches_single_messages() {
+        SecureRandom rnd = new SecureRandom();
+        for (AlgorithmType at : AlgorithmType.values()) {
+            for (ModeType mt : ModeType.values()) {
+                CryptoSuite suite = new CryptoFactory.Builder()
+                        .algorithm(at).mode(mt).padding(PaddingType.PKCS7).key(randomBytes(16)).buildSuite();
+                String name = at + "/" + mt;
+
+                int n = 300;
+                byte[][] msgs = new byte[n][];
+                byte[][] ivs = new byte[n][];
+                for (int i = 0; i < n; i++) {
+                    msgs[i] = randomBytes(rnd.nextInt(i % 50 == 0 ? 2000 : 80));
+                    ivs[i] = randomBytes(16);
+                }
+
+                MessageBatch ct = suite.encryptBatch(msgs, ivs);
+                assertEquals(n, ct.size());
+                for (int i = 0; i < n; i++)
+                    assertArrayEquals(suite.encrypt(msgs[i], ivs[i]), ct.get(i), name + " #" + i);
+
+                MessageBatch plain = suite.decryptBatch(ct.toArrays(), ivs);
+                for (int i = 0; i < n; i++)
+                    assertArrayEquals(msgs[i], plain.get(i), name + " #" + i);
+                assertArrayEquals(msgs[7], suite.decryptBatch(ct, ivs).get(7), name);
+            }
+        }
+    }
+
+    @Test
+    void shared_suite_from_many_threads() throws Exception {
+        for (ModeType mt : ModeType.values()) {
+            CryptoSuite suite = new CryptoFactory.Builder()
+                    .algorithm(AlgorithmType.MAGENTA).mode(mt).padding(PaddingType.PKCS7).key(randomBytes(32)).buildSuite();
+
+            int n = 64;
+            byte[][] msgs = new byte[n][];
+            byte[][] ivs = new byte[n][];
+            byte[][] expected = new byte[n][];
+            for (int i = 0; i < n; i++) {
+                msgs[i] = randomBytes(1 + i * 37);
+                ivs[i] = randomBytes(16);
+                expected[i] = suite.encrypt(msgs[i], ivs[i]);
+            }
+
+            java.util.concurrent.ExecutorService pool = java.util.concurrent.Executors.newFixedThreadPool(8);
+            try {
+                java.util.List<java.util.concurrent.Future<Boolean>> results = new java.util.ArrayList<>();
+                for (int t = 0; t < 8; t++) {
+                    results.add(pool.submit(() -> {
+                        for (int round = 0; round < 20; round++)
+                            for (int i = 0; i < n; i++) {
+                                byte[] ct = suite.encrypt(msgs[i], ivs[i]);
+                                if (!java.util.Arrays.equals(expected[i], ct)) return false;
+                                if (!java.util.Arrays.equals(msgs[i], suite.decrypt(ct, ivs[i]))) return false;
+                            }
+                        return true;
+                    }));
+                }
+                for (java.util.concurrent.Future<Boolean> f : results) assertTrue(f.get(), mt.name());
+            } finally {
+                pool.shutdown();
+            }
+        }
+    }
+
+    @Test
+    void suite_cache_hits_ttl_and_room_eviction() {
+        long[] now = {0};
+        SuiteCache cache = new SuiteCache(2, java.time.Duration.ofSeconds(10), () -> now[0]);
+        byte[] key = randomBytes(16);
+
+        CryptoSuite a = cache.get("room-1", AlgorithmType.MARS, ModeType.CBC, PaddingType.PKCS7, key);
+        assertSame(a, cache.get("room-1", AlgorithmType.MARS, ModeType.CBC, PaddingType.PKCS7, key.clone()));
+        assertNotSame(a, cache.get("room-1", AlgorithmType.MARS, ModeType.CTR, PaddingType.PKCS7, key));
+        assertEquals(1, cache.hitCount());
+        assertEquals(2, cache.missCount());
+
+        // LRU: a использовался последним из двух, вытесняется CTR-запись
+        cache.get("room-1", AlgorithmType.MARS, ModeType.CBC, PaddingType.PKCS7, key);
+        cache.get("room-2", AlgorithmType.MAGENTA, ModeType.CBC, PaddingType.PKCS7, key);
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.evictionCount());
+        assertSame(a, cache.get("room-1", AlgorithmType.MARS, ModeType.CBC, PaddingType.PKCS7, key));
+
+        // кэшированный suite шифрует так же, как собранный заново
+        byte[] iv = randomBytes(16), msg = randomBytes(100);
+        CryptoSuite fresh = new CryptoFactory.Builder()
+                .algorithm(AlgorithmType.MARS).mode(ModeType.CBC).padding(PaddingType.PKCS7).key(key).buildSuite();
+        assertArrayEquals(fresh.encrypt(msg, iv), a.encrypt(msg, iv));
+
+        assertEquals(1, cache.invalidate("room-1"));
+        assertNotSame(a, cache.get("room-1", AlgorithmType.MARS, ModeType.CBC, PaddingType.PKCS7, key));
+
+        now[0] += java.time.Duration.ofSeconds(11).toNanos();
+        long misses = cache.missCount();
+        cache.get("room-2", AlgorithmType.MAGENTA, ModeType.CBC, PaddingType.PKCS7, key);
+        assertEquals(misses + 1, cache.missCount());
+    }
+
+    @Test
+    void suite_cache_invalidate_during_build_is_not_undone() {
+        byte[] key = randomKey();
+        SuiteCache[] cache = new SuiteCache[1];
+        // комнату закрывают, пока suite для неё ещё собирается
+        cache[0] = new SuiteCache(8, java.time.Duration.ofMinutes(1), System::nanoTime, (alg, mode, pad, k) -> {
+            cache[0].invalidate("room-1");
+            return new CryptoFactory.Builder().algorithm(alg).mode(mode).padding(pad).key(k).buildSuite();
+        });
+
+        CryptoSuite suite = cache[0].get("room-1", AlgorithmType.MARS, ModeType.CBC, PaddingType.PKCS7, key);
+        assertNotNull(suite);
+        assertEquals(0, cache[0].size(), "закрытая комната вернулась в кэш");
+
+        // invalidate другой комнаты не мешает
+        cache[0].get("room-2", AlgorithmType.MARS, ModeType.CBC, PaddingType.PKCS7, key);
+        assertEquals(1, cache[0].size());
+    }
+
+    @Test
+    void engine_registry_selects_verified_engine() {
+        EngineRegistry registry = EngineRegistry.withBuiltins();
+        // "быстрый" движок с ошибкой: калибровка должна его отбросить
+        registry.register(AlgorithmType.MAGENTA, "broken", () -> new MagentaFast() {
+            @Override
+            public void encryptBlock(byte[] in, int inOff, byte[] out, int outOff) {
+                System.arraycopy(in, inOff, out, outOff, 16);
+            }
+        }, java.util.EnumSet.of(EngineCapability.IN_PLACE));
+        // верный, но не потокобезопасный движок: выбирать его для общего suite нельзя
+        // и распараллеливать тоже
+        registry.register(AlgorithmType.MAGENTA, "single-thread", () -> new MagentaFast() {
+        }, java.util.EnumSet.of(EngineCapability.IN_PLACE));
+        assertThrows(IllegalArgumentException.class, () -> registry.select(AlgorithmType.MAGENTA, "single-thread"));
+        assertEquals(Integer.MAX_VALUE, registry.find(AlgorithmType.MAGENTA, "single-thread").getParallelThreshold());
+
+        int threshold = com.project.crypto.modes.ParallelBlocks.getThreshold();
+        registry.calibrateEngines();
+        assertEquals(threshold, com.project.crypto.modes.ParallelBlocks.getThreshold());
+        assertTrue(registry.find(AlgorithmType.MAGENTA, "single-thread").isVerified());
+
+        for (AlgorithmType type : AlgorithmType.values()) {
+            EngineRegistry.Engine chosen = registry.selected(type);
+            assertTrue(chosen.isVerified(), type + ": выбран непроверенный движок");
+            assertFalse(Double.isNaN(chosen.getNanosPerBlock()));
+        }
+        assertFalse(registry.find(AlgorithmType.MAGENTA, "broken").isVerified());
+        assertNotEquals("broken", registry.selected(AlgorithmType.MAGENTA).getName());
+        assertNotEquals("single-thread", registry.selected(AlgorithmType.MAGENTA).getName());
+
+        byte[] key = randomBytes(16);
+        byte[] block = randomBytes(16);
+        Magenta reference = new Magenta();
+        reference.setKey(key);
+        Algorithm alg = registry.create(AlgorithmType.MAGENTA);
+        alg.setKey(key);
+        assertArrayEquals(reference.encryptBlock(block), alg.encryptBlock(block));
+    }
+
+    @Test
+    void dh_params_pool_hands_out_safe_primes() throws Exception {
+        try (com.project.crypto.keyx.DhParamsPool pool = new com.project.crypto.keyx.DhParamsPool(128, 20, 2, 1)) {
+            long deadline = System.currentTimeMillis() + 10_000;
+            while (pool.available() < 2 && System.currentTimeMillis() < deadline) Thread.sleep(10);
+            assertEquals(2, pool.available());
+
+            DhParams a = pool.take();
+            DhParams b = pool.take();
+            assertNotEquals(a.p, b.p, "группа выдана дважды");
+            assertEquals(0, pool.syncFallbackCount());
+            for (DhParams params : new DhParams[]{a, b}) {
+                assertEquals(params.q.shiftLeft(1).add(java.math.BigInteger.ONE), params.p);
+                assertTrue(params.q.isProbablePrime(20));
+            }
+        }
+    }
+
+    @Test
+    void sieved_generator_returns_safe_primes() {
+        for (int bits : new int[]{40, 384, 768}) {
+            DhParams params = DhParams.generate(bits, 40, rng);
+            assertEquals(bits, params.p.bitLength());
+            assertEquals(params.q.shiftLeft(1).add(java.math.BigInteger.ONE), params.p);
+            assertTrue(params.q.isProbablePrime(64) && params.p.isProbablePrime(64), "bits=" + bits);
+            assertNotEquals(java.math.BigInteger.ONE, params.g.modPow(params.q, params.p));
+        }
+    }
+
+    @Test
+    void standard_groups_share_params_and_table() {
+        for (com.project.crypto.keyx.DhGroup group : com.project.crypto.keyx.DhGroup.values()) {
+            DhParams params = group.params();
+            assertSame(params, group.params());
+            assertEquals(params.q.shiftLeft(1).add(java.math.BigInteger.ONE), params.p);
+            assertTrue(params.p.isProbablePrime(20), group.name());
+        }
+
+        DhParams params = com.project.crypto.keyx.DhGroup.FFDHE_2048.params();
+        for (int i = 0; i < 5; i++) {
+            java.math.BigInteger x = new java.math.BigInteger(params.q.bitLength() - 1, rng);
+            assertEquals(params.g.modPow(x, params.p), params.powG(x));
+        }
+        assertEquals(java.math.BigInteger.ONE, params.powG(java.math.BigInteger.ZERO));
+        assertEquals(java.math.BigInteger.ONE, params.powG(params.q));
+
+        DiffieHellman a = new DiffieHellman(params);
+        DiffieHellman b = new DiffieHellman(params);
+        byte[] xa = a.generatePrivate(), xb = b.generatePrivate();
+        assertArrayEquals(a.deriveShared(xa, b.derivePublic(xb)), b.deriveShared(xb, a.derivePublic(xa)));
+    }
+
+    @Test
+    void x25519_rfc7748_vectors() {
+        java.util.HexFormat hex = java.util.HexFormat.of();
+        byte[] a = hex.parseHex("77076d0a7318a57d3c16c17251b26645df4c2f87ebc0992ab177fba51db92c2a");
+        byte[] b = hex.parseHex("5dab087e624a8a4b79e17f8b83800ee66f3bb1292618b6fd1c2f8b27ff88e0eb");
+        com.project.crypto.keyx.X25519 x = new com.project.crypto.keyx.X25519();
+
+        byte[] pubA = x.derivePublic(a);
+        byte[] pubB = x.derivePublic(b);
+        assertEquals("8520f0098930a754748b7ddcb43ef75a0dbf3a0d26381af4eba4a98eaa9b4e6a", hex.formatHex(pubA));
+        assertEquals("de9edb7d7b7dc1b4d35b61c2ece435373f8343c85b78674dadfc7e146f882b4f", hex.formatHex(pubB));
+        String shared = "4a5d9d5ba4ce2de1728e3bf480350f25e07e21c947d19e3376f09b3c1e161742";
+        assertEquals(shared, hex.formatHex(x.deriveShared(a, pubB)));
+        assertEquals(shared, hex.formatHex(x.deriveShared(b, pubA)));
+
+        // точка малого порядка (u = 0) и ключ не той длины
+        assertThrows(IllegalArgumentException.class, () -> x.deriveShared(a, new byte[32]));
+        assertThrows(IllegalArgumentException.class, () -> x.deriveShared(a, new byte[31]));
+    }
+
+    @Test
+    void room_service_pushes_public_keys() {
+        com.project.service.RoomService rooms = new com.project.service.RoomService(
+                new SuiteCache(4, java.time.Duration.ofMinutes(1)), null);
+        String roomId = rooms.createRoom("MARS", "CBC", "PKCS7", null, "X25519").getId();
+
+        java.util.List<String> seen = new java.util.concurrent.CopyOnWriteArrayList<>();
+        Runnable unsubscribe = rooms.subscribeKeys(roomId, (user, key) -> seen.add(user + "=" + key));
+        rooms.submitPublicKey(roomId, "alice", java.math.BigInteger.TEN);
+        assertEquals(java.util.List.of("alice=10"), seen);
+
+        // поздний подписчик получает уже присланные ключи сразу
+        java.util.List<String> late = new java.util.ArrayList<>();
+        rooms.subscribeKeys(roomId, (user, key) -> late.add(user));
+        assertEquals(java.util.List.of("alice"), late);
+
+        unsubscribe.run();
+        rooms.submitPublicKey(roomId, "bob", java.math.BigInteger.TWO);
+        assertEquals(1, seen.size());
+        assertEquals(java.util.List.of("alice", "bob"), late);
+
+        // подписка только на существующую активную комнату
+        assertThrows(IllegalArgumentException.class, () -> rooms.subscribeKeys("no-such-room", (user, key) -> {}));
+        rooms.closeRoom(roomId);
+        assertThrows(IllegalArgumentException.class, () -> rooms.subscribeKeys(roomId, (user, key) -> {}));
+    }
+
+    @Test
+    void group_key_tree_join_and_leave() {
+        java.util.concurrent.atomic.AtomicInteger exps = new java.util.concurrent.atomic.AtomicInteger();
+        // X25519 со счётчиком возведений в степень
+        java.util.function.Supplier<com.project.crypto.keyx.KeyAgreement> counting = () ->
+                new com.project.crypto.keyx.KeyAgreement() {
+                    final com.project.crypto.keyx.X25519 x = new com.project.crypto.keyx.X25519();
+                    public byte[] generatePrivate() { return x.generatePrivate(); }
+                    public byte[] derivePublic(byte[] k) { exps.incrementAndGet(); return x.derivePublic(k); }
+                    public byte[] deriveShared(byte[] k, byte[] p) { exps.incrementAndGet(); return x.deriveShared(k, p); }
+                    public int getEncodedLength() { return x.getEncodedLength(); }
+                    public byte[] privateFromSecret(byte[] s) { return x.privateFromSecret(s); }
+                };
+
+        com.project.crypto.keyx.GroupKeyTree tree = new com.project.crypto.keyx.GroupKeyTree();
+        java.util.List<com.project.crypto.keyx.GroupKeyMember> members = new java.util.ArrayList<>();
+        for (int i = 0; i < 64; i++) {
+            com.project.crypto.keyx.GroupKeyMember m = new com.project.crypto.keyx.GroupKeyMember("u" + i, counting.get());
+            members.add(m);
+            tree.join(m);
+        }
+        assertEquals(6, tree.depth());
+
+        byte[] key = tree.keyFor(members.get(0)).key;
+        for (com.project.crypto.keyx.GroupKeyMember m : members)
+            assertArrayEquals(key, tree.keyFor(m).key, m.getId());
+
+        // вход: новый участник пересчитывает свой путь, остальные - только изменённые узлы
+        com.project.crypto.keyx.GroupKeyMember late = new com.project.crypto.keyx.GroupKeyMember("late", counting.get());
+        exps.set(0);
+        tree.join(late);
+        assertTrue(exps.get() <= 2 * (tree.depth() + 1), "join: " + exps.get());
+        byte[] afterJoin = tree.keyFor(late).key;
+        assertFalse(java.util.Arrays.equals(key, afterJoin));
+        exps.set(0);
+        assertArrayEquals(afterJoin, tree.keyFor(members.get(17)).key);
+        assertTrue(exps.get() <= tree.depth(), "refresh: " + exps.get());
+
+        // выход: ключ меняется, ушедший больше не участник
+        com.project.crypto.keyx.GroupKeyMember gone = members.remove(5);
+        exps.set(0);
+        assertTrue(tree.leave(gone.getId()));
+        assertTrue(exps.get() <= 2 * (tree.depth() + 1), "leave: " + exps.get());
+        byte[] afterLeave = tree.keyFor(late).key;
+        assertFalse(java.util.Arrays.equals(afterJoin, afterLeave));
+        for (com.project.crypto.keyx.GroupKeyMember m : members)
+            assertArrayEquals(afterLeave, tree.keyFor(m).key, m.getId());
+        assertThrows(IllegalArgumentException.class, () -> tree.keyFor(gone));
+        assertEquals(66, tree.epoch());
+    }
+
+    @Test
+    void room_group_keys_only_for_active_rooms() {
+        com.project.service.RoomService rooms = new com.project.service.RoomService(
+                new SuiteCache(4, java.time.Duration.ofMinutes(1)), null);
+        String roomId = rooms.createRoom("MARS", "CBC", "PKCS7", null, "X25519").getId();
+        com.project.crypto.keyx.GroupKeyMember a = new com.project.crypto.keyx.GroupKeyMember("a", new com.project.crypto.keyx.X25519());
+        com.project.crypto.keyx.GroupKeyMember b = new com.project.crypto.keyx.GroupKeyMember("b", new com.project.crypto.keyx.X25519());
+
+        assertThrows(IllegalArgumentException.class, () -> rooms.joinGroup("no-such-room", a, null));
+        assertTrue(rooms.findGroup("no-such-room").isEmpty());
+
+        java.util.List<Integer> epochs = new java.util.ArrayList<>();
+        com.project.crypto.keyx.GroupKeyTree tree = rooms.joinGroup(roomId, a, epochs::add);
+        assertSame(tree, rooms.joinGroup(roomId, b, null));
+        assertEquals(java.util.List.of(1, 2), epochs);
+
+        // последний вышедший удаляет дерево
+        assertTrue(rooms.leaveGroup(roomId, "a"));
+        assertEquals(java.util.List.of(1, 2), epochs, "ушедший участник не получает эпохи");
+        assertTrue(rooms.leaveGroup(roomId, "b"));
+        assertTrue(rooms.findGroup(roomId).isEmpty());
+
+        rooms.closeRoom(roomId);
+        assertThrows(IllegalArgumentException.class, () -> rooms.joinGroup(roomId, a, null));
+    }
+
+    @Test
+    void room_group_listener_may_reenter_room_service() {
+        com.project.service.RoomService rooms = new com.project.service.RoomService(
+                new SuiteCache(4, java.time.Duration.ofMinutes(1)), null);
+        String roomId = rooms.createRoom("MARS", "CBC", "PKCS7", null, "X25519").getId();
+        com.project.crypto.keyx.GroupKeyMember a = new com.project.crypto.keyx.GroupKeyMember("a", new com.project.crypto.keyx.X25519());
+        com.project.crypto.keyx.GroupKeyMember b = new com.project.crypto.keyx.GroupKeyMember("b", new com.project.crypto.keyx.X25519());
+        com.project.crypto.keyx.GroupKeyMember c = new com.project.crypto.keyx.GroupKeyMember("c", new com.project.crypto.keyx.X25519());
+
+        // слушатель выполняется в потоке входящего участника и ждёт другой поток,
+        // которому нужна та же комната (как ui.access другой сессии)
+        boolean[] blocked = new boolean[1];
+        rooms.joinGroup(roomId, a, e -> {
+            if (e != 2) return;
+            Thread other = new Thread(() -> rooms.joinGroup(roomId, c, null));
+            other.start();
+            try {
+                other.join(2000);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            blocked[0] = other.isAlive();
+        });
+        com.project.crypto.keyx.GroupKeyTree tree = rooms.joinGroup(roomId, b, null);
+        assertFalse(blocked[0], "вход в комнату ждал рассылку эпох другого участника");
+        assertEquals(3, tree.size());
+        assertTrue(rooms.leaveGroup(roomId, "b"));
+        assertEquals(2, tree.size());
+        assertSame(tree, rooms.findGroup(roomId).orElseThrow());
+    }
+
+    @Test
+    void group_key_tree_over_dh_group() {
+        DhParams params = com.project.crypto.keyx.DhGroup.FFDHE_2048.params();
+        com.project.crypto.keyx.GroupKeyTree tree = new com.project.crypto.keyx.GroupKeyTree();
+        com.project.crypto.keyx.GroupKeyMember a = new com.project.crypto.keyx.GroupKeyMember("a", new DiffieHellman(params));
+        com.project.crypto.keyx.GroupKeyMember b = new com.project.crypto.keyx.GroupKeyMember("b", new DiffieHellman(params));
+        com.project.crypto.keyx.GroupKeyMember c = new com.project.crypto.keyx.GroupKeyMember("c", new DiffieHellman(params));
+        tree.join(a);
+        tree.join(b);
+        tree.join(c);
+        assertArrayEquals(tree.keyFor(a).key, tree.keyFor(b).key);
+        assertArrayEquals(tree.keyFor(a).key, tree.keyFor(c).key);
+        tree.leave("a");
+        assertArrayEquals(tree.keyFor(b).key, tree.keyFor(c).key);
+    }
+
     @Test
     void diffie_hellman() {
         DhParams params = DhParams.generate(512, 64, rng);
@@ -214,9 +1110,8 @@ public class CryTest {
 
     @Test
     void magenta_encrypt_decrypt_block() {
-        Magenta magenta = new Magenta();
-
         for (int keyLen : new int[]{16, 24, 32}) {
+            Magenta magenta = new Magenta();
             byte[] key = randomBytes(keyLen);
             magenta.setKey(key);
 
@@ -244,6 +1139,42 @@ public class CryTest {
         }
     }
 
+    @Test
+    void magenta_fast_matches_reference() {
+        for (int keyLen : new int[]{16, 24, 32}) {
+            byte[] key = randomBytes(keyLen);
+            Magenta ref = new Magenta();
+            MagentaFast fast = new MagentaFast();
+            ref.setKey(key);
+            fast.setKey(key);
+
+            for (int i = 0; i < 64; i++) {
+                byte[] pt = randomBytes(16);
+                byte[] ct = ref.encryptBlock(pt);
+                assertArrayEquals(ct, fast.encryptBlock(pt), "keyLen=" + keyLen + ", i=" + i);
+                assertArrayEquals(pt, fast.decryptBlock(ct), "keyLen=" + keyLen + ", i=" + i);
+            }
+        }
+    }
+
+    @Test
+    void magenta_table_matches_reference() {
+        for (int keyLen : new int[]{16, 24, 32}) {
+            byte[] key = randomBytes(keyLen);
+            Magenta ref = new Magenta();
+            MagentaTable table = new MagentaTable();
+            ref.setKey(key);
+            table.setKey(key);
+
+            for (int i = 0; i < 64; i++) {
+                byte[] pt = randomBytes(16);
+                byte[] ct = ref.encryptBlock(pt);
+                assertArrayEquals(ct, table.encryptBlock(pt), "keyLen=" + keyLen + ", i=" + i);
+                assertArrayEquals(pt, table.decryptBlock(ct), "keyLen=" + keyLen + ", i=" + i);
+            }
+        }
+    }
+
     @Test
     void magenta_block_size_constant() {
         Magenta magenta = new Magenta();